@@ -0,0 +1,95 @@
+package org.apache.lucene.demo.benchmark;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.util.Version;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link StandardAnalyzer} 의 문서 분석 처리량(문서/초).
+ * Analyzer 는 스레드마다 TokenStream 을 재사용하므로 모든 스레드가 하나를 공유한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzerBenchmark {
+
+	/** 돌아가며 분석할 문서 수 */
+	@Param({ "1000" })
+	public int corpusSize;
+
+	private Corpus corpus;
+	private Analyzer analyzer;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("deprecation")
+	public void setUp() {
+		corpus = new Corpus(corpusSize);
+		analyzer = new StandardAnalyzer(Version.LUCENE_4_10_0);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		analyzer.close();
+	}
+
+	/** 스레드마다 다음에 분석할 문서 위치 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next;
+	}
+
+	/** 문서 하나를 분석하고 token 수를 반환한다. */
+	@Benchmark
+	public int tokenize(Cursor cursor) throws IOException {
+		String text = corpus.text(cursor.next++ % corpus.size());
+		int tokens = 0;
+		try (TokenStream stream = analyzer.tokenStream("contents", text)) {
+			CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+			stream.reset();
+			while (stream.incrementToken()) {
+				tokens += term.length() > 0 ? 1 : 0;
+			}
+			stream.end();
+		}
+		return tokens;
+	}
+
+}
@@ -0,0 +1,131 @@
+package org.apache.lucene.demo.benchmark;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.demo.BatchSearcher;
+import org.apache.lucene.demo.SlicedIndexSearcher;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 여러 쿼리를 하나씩 차례로 검색할때와 {@link BatchSearcher} 로 한번에 검색할때의 배치 처리 시간.
+ * <p>
+ * 상품군마다 쿼리 하나를 보내는 경우처럼 쿼리마다 고유한 단어와 몇몇 쿼리가 공유하는 단어를 섞는다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@SuppressWarnings("deprecation")
+public class BatchBenchmark {
+
+	/** 배치 하나의 쿼리 수 */
+	@Param({ "50", "200" })
+	public int batchSize;
+
+	/** 배치 검색 스레드 수 */
+	@Param({ "1", "4" })
+	public int threads;
+
+	private DirectoryReader reader;
+	private IndexSearcher searcher;
+	private ExecutorService executor;
+	private BatchSearcher batchSearcher;
+	private List<Query> queries;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		Corpus corpus = new Corpus(100000);
+		RAMDirectory dir = new RAMDirectory();
+		IndexWriter writer = new IndexWriter(dir,
+				new IndexWriterConfig(Version.LUCENE_4_10_0, new StandardAnalyzer(Version.LUCENE_4_10_0)));
+		for (int i = 0; i < corpus.size(); i++) {
+			writer.addDocument(corpus.document(i));
+		}
+		writer.close();
+		reader = DirectoryReader.open(dir);
+		searcher = new IndexSearcher(reader);
+		executor = SlicedIndexSearcher.newExecutor(threads);
+		batchSearcher = new BatchSearcher(executor);
+
+		queries = new ArrayList<>(batchSize);
+		for (int i = 0; i < batchSize; i++) {
+			BooleanQuery bq = new BooleanQuery();
+			bq.add(new TermQuery(new Term("contents", corpus.term(20 + (i * 7) % 2000))), Occur.MUST);
+			bq.add(new TermQuery(new Term("contents", corpus.term(i % 5))), Occur.SHOULD);
+			queries.add(bq);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		executor.shutdown();
+		reader.close();
+	}
+
+	@Benchmark
+	public int sequential() throws IOException {
+		int totalHits = 0;
+		for (Query query : queries) {
+			totalHits += searcher.search(query, 10).totalHits;
+		}
+		return totalHits;
+	}
+
+	@Benchmark
+	public int batch() throws IOException {
+		int totalHits = 0;
+		for (TopDocs hits : batchSearcher.search(searcher, queries, 10)) {
+			totalHits += hits.totalHits;
+		}
+		return totalHits;
+	}
+
+}
@@ -0,0 +1,133 @@
+package org.apache.lucene.demo.benchmark;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+
+/**
+ * 벤치마크에 사용할 합성 문서 집합.
+ * <p>
+ * 같은 seed 로 만들면 항상 같은 문서가 만들어지므로 실행 사이의 결과를 비교할 수 있다.
+ * 단어는 Zipf 분포에 가깝게 선택되어 실제 문서처럼 자주 나오는 단어와 드문 단어가 섞인다.
+ */
+public class Corpus {
+
+	/** 단어 목록의 크기 */
+	public static final int VOCABULARY_SIZE = 10000;
+
+	/** 문서 하나의 평균 단어 수 */
+	public static final int WORDS_PER_DOC = 200;
+
+	private static final long SEED = 42;
+
+	private final String[] vocabulary = new String[VOCABULARY_SIZE];
+	private final String[] docs;
+
+	/**
+	 * @param size 문서 수
+	 */
+	public Corpus(int size) {
+		Random random = new Random(SEED);
+		for (int i = 0; i < vocabulary.length; i++) {
+			int length = 3 + random.nextInt(6);
+			char[] word = new char[length];
+			for (int j = 0; j < length; j++) {
+				word[j] = (char) ('a' + random.nextInt(26));
+			}
+			vocabulary[i] = new String(word);
+		}
+
+		docs = new String[size];
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			sb.setLength(0);
+			int words = WORDS_PER_DOC / 2 + random.nextInt(WORDS_PER_DOC);
+			for (int j = 0; j < words; j++) {
+				sb.append(word(random)).append(j % 15 == 14 ? ". " : " ");
+			}
+			docs[i] = sb.toString();
+		}
+	}
+
+	/** 순위가 높은 단어일수록 자주 선택된다. (1/rank 에 가까운 분포) */
+	private String word(Random random) {
+		double u = random.nextDouble();
+		int rank = (int) Math.pow(VOCABULARY_SIZE, u) - 1;
+		return vocabulary[Math.min(rank, VOCABULARY_SIZE - 1)];
+	}
+
+	/** 빈도 순위가 rank 인 단어 */
+	public String term(int rank) {
+		return vocabulary[rank];
+	}
+
+	/** 문서 수 */
+	public int size() {
+		return docs.length;
+	}
+
+	/** i 번째 문서의 본문 */
+	public String text(int i) {
+		return docs[i];
+	}
+
+	/** i 번째 문서를 IndexFiles 와 같은 필드 구성으로 만든다. */
+	public Document document(int i) {
+		Document doc = new Document();
+		doc.add(new StringField("path", "doc" + i, Field.Store.YES));
+		doc.add(new TextField("contents", docs[i], Field.Store.NO));
+		return doc;
+	}
+
+	/**
+	 * 문서들을 디렉토리에 파일로 쓴다. 디렉토리 하나에 1000 개씩 나누어 쓴다.
+	 * 
+	 * @param dir
+	 * @throws IOException
+	 */
+	public void write(File dir) throws IOException {
+		for (int i = 0; i < docs.length; i++) {
+			File sub = new File(dir, "d" + (i / 1000));
+			if (i % 1000 == 0 && !sub.mkdirs()) {
+				throw new IOException("cannot create " + sub);
+			}
+			Files.write(new File(sub, "doc" + i + ".txt").toPath(), docs[i].getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/** 디렉토리와 그 아래의 모든 파일을 삭제한다. */
+	public static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+}
@@ -0,0 +1,131 @@
+package org.apache.lucene.demo.benchmark;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.FacetField;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.taxonomy.FastTaxonomyFacetCounts;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyReader;
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link FacetsCollector} 로 수집한 결과를 {@link FastTaxonomyFacetCounts} 로 집계하는 시간.
+ * SimpleFacetsExample 과 같은 "Author", "Publish Date" 차원을 사용한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@SuppressWarnings("deprecation")
+public class FacetBenchmark {
+
+	/** 문서 수 */
+	@Param({ "10000", "100000" })
+	public int corpusSize;
+
+	private final FacetsConfig config = new FacetsConfig();
+	private DirectoryReader reader;
+	private TaxonomyReader taxoReader;
+	private IndexSearcher searcher;
+	private Query termQuery;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		config.setHierarchical("Publish Date", true);
+
+		Corpus corpus = new Corpus(corpusSize);
+		RAMDirectory indexDir = new RAMDirectory();
+		RAMDirectory taxoDir = new RAMDirectory();
+		IndexWriter writer = new IndexWriter(indexDir,
+				new IndexWriterConfig(Version.LUCENE_4_10_0, new StandardAnalyzer(Version.LUCENE_4_10_0)));
+		DirectoryTaxonomyWriter taxoWriter = new DirectoryTaxonomyWriter(taxoDir);
+		for (int i = 0; i < corpus.size(); i++) {
+			Document doc = corpus.document(i);
+			doc.add(new FacetField("Author", "author" + (i % 100)));
+			doc.add(new FacetField("Publish Date", String.valueOf(2000 + i % 15), String.valueOf(1 + i % 12),
+					String.valueOf(1 + i % 28)));
+			writer.addDocument(config.build(taxoWriter, doc));
+		}
+		writer.close();
+		taxoWriter.close();
+
+		reader = DirectoryReader.open(indexDir);
+		taxoReader = new DirectoryTaxonomyReader(taxoDir);
+		searcher = new IndexSearcher(reader);
+		termQuery = new TermQuery(new Term("contents", corpus.term(10)));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		reader.close();
+		taxoReader.close();
+	}
+
+	private int count(Query query) throws IOException {
+		FacetsCollector fc = new FacetsCollector();
+		FacetsCollector.search(searcher, query, 10, fc);
+		Facets facets = new FastTaxonomyFacetCounts(taxoReader, config, fc);
+		return facets.getTopChildren(10, "Author").childCount + facets.getTopChildren(10, "Publish Date").childCount;
+	}
+
+	/** 모든 문서의 facet 을 집계한다. */
+	@Benchmark
+	public int matchAll() throws IOException {
+		return count(new MatchAllDocsQuery());
+	}
+
+	/** 단어 검색 결과의 facet 을 집계한다. */
+	@Benchmark
+	public int termQuery() throws IOException {
+		return count(termQuery);
+	}
+
+}
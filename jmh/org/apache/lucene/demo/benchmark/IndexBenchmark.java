@@ -0,0 +1,101 @@
+package org.apache.lucene.demo.benchmark;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.demo.FileIndexer;
+import org.apache.lucene.demo.IndexFiles;
+import org.apache.lucene.demo.IndexStats;
+import org.apache.lucene.demo.ParallelIndexer;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 디렉토리 트리 전체를 색인하는 시간. IndexFiles 와 같은 경로
+ * ({@link FileIndexer} 와 {@link ParallelIndexer}) 로 파일을 읽어서 RAMDirectory 에 색인한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@SuppressWarnings("deprecation")
+public class IndexBenchmark {
+
+	/** 문서 수 */
+	@Param({ "1000", "10000" })
+	public int corpusSize;
+
+	/** 색인 스레드 수. 1 이면 IndexFiles.indexDocs 와 같은 직렬 색인 */
+	@Param({ "1", "4" })
+	public int threads;
+
+	private File docs;
+	private Analyzer analyzer;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		docs = Files.createTempDirectory("jmh-docs").toFile();
+		new Corpus(corpusSize).write(docs);
+		analyzer = new StandardAnalyzer(Version.LUCENE_4_10_0);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		Corpus.delete(docs);
+	}
+
+	@Benchmark
+	public long indexDocs() throws IOException, InterruptedException {
+		IndexWriterConfig iwc = new IndexWriterConfig(Version.LUCENE_4_10_0, analyzer).setOpenMode(OpenMode.CREATE);
+		IndexWriter writer = new IndexWriter(new RAMDirectory(), iwc);
+		IndexStats stats = new IndexStats();
+		FileIndexer indexer = new FileIndexer(writer, stats);
+		if (threads > 1) {
+			new ParallelIndexer(indexer, threads, threads * 64).indexDocs(docs);
+		} else {
+			IndexFiles.indexDocs(indexer, docs);
+		}
+		writer.close();
+		return stats.getDocs();
+	}
+
+}
@@ -0,0 +1,152 @@
+package org.apache.lucene.demo.benchmark;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.demo.SearchService;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SearchFiles 와 같은 형태(상위 100건 조회)의 쿼리 응답시간.
+ * <p>
+ * 동시 검색 스레드 수는 JMH 의 -t 옵션으로 지정한다. 모든 스레드가 하나의 {@link SearchService} 를 공유하고
+ * SearchFiles 처럼 검색할때마다 Searcher 를 얻고 반환한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@SuppressWarnings("deprecation")
+public class SearchBenchmark {
+
+	/** 문서 수 */
+	@Param({ "10000", "100000" })
+	public int corpusSize;
+
+	private SearchService service;
+
+	/** 빈도 순위별로 고른 쿼리들. 스레드마다 순서대로 돌아가며 실행한다. */
+	private Query[] termQueries;
+	private Query[] booleanQueries;
+	private Query[] phraseQueries;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		Corpus corpus = new Corpus(corpusSize);
+		RAMDirectory dir = new RAMDirectory();
+		IndexWriter writer = new IndexWriter(dir,
+				new IndexWriterConfig(Version.LUCENE_4_10_0, new StandardAnalyzer(Version.LUCENE_4_10_0)));
+		for (int i = 0; i < corpus.size(); i++) {
+			writer.addDocument(corpus.document(i));
+		}
+		writer.close();
+		service = new SearchService(dir, new SearcherFactory(), 0);
+
+		// 자주 나오는 단어부터 드문 단어까지 섞는다.
+		int[] ranks = { 0, 3, 10, 50, 200, 1000, 5000 };
+		termQueries = new Query[ranks.length];
+		booleanQueries = new Query[ranks.length];
+		phraseQueries = new Query[ranks.length];
+		for (int i = 0; i < ranks.length; i++) {
+			String term = corpus.term(ranks[i]);
+			String other = corpus.term(ranks[(i + 1) % ranks.length]);
+			termQueries[i] = new TermQuery(new Term("contents", term));
+
+			BooleanQuery bq = new BooleanQuery();
+			bq.add(new TermQuery(new Term("contents", term)), Occur.MUST);
+			bq.add(new TermQuery(new Term("contents", other)), Occur.SHOULD);
+			booleanQueries[i] = bq;
+
+			// 문서 본문에서 실제로 이어지는 두 단어를 구절로 사용한다.
+			String[] words = corpus.text(i).split(" ");
+			PhraseQuery pq = new PhraseQuery();
+			pq.add(new Term("contents", words[2 * i]));
+			pq.add(new Term("contents", words[2 * i + 1].replace(".", "")));
+			phraseQueries[i] = pq;
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		service.close();
+	}
+
+	/** 스레드마다 다음에 실행할 쿼리 위치 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next;
+
+		Query next(Query[] queries) {
+			return queries[next++ % queries.length];
+		}
+	}
+
+	private int search(Query query) throws IOException {
+		IndexSearcher searcher = service.acquire();
+		try {
+			return searcher.search(query, 100).totalHits;
+		} finally {
+			service.release(searcher);
+		}
+	}
+
+	@Benchmark
+	public int termQuery(Cursor cursor) throws IOException {
+		return search(cursor.next(termQueries));
+	}
+
+	@Benchmark
+	public int booleanQuery(Cursor cursor) throws IOException {
+		return search(cursor.next(booleanQueries));
+	}
+
+	@Benchmark
+	public int phraseQuery(Cursor cursor) throws IOException {
+		return search(cursor.next(phraseQueries));
+	}
+
+}
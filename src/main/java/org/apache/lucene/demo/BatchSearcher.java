@@ -0,0 +1,221 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.Weight;
+
+/**
+ * 여러 쿼리를 한번에 검색한다.
+ * <p>
+ * 같은 쿼리는 한번만 실행한다. 단어를 공유하는 쿼리들은 한 그룹으로 묶어서 한 스레드가 세그먼트 단위로 번갈아 실행하므로
+ * 공유하는 단어의 term dictionary 와 postings 가 캐시에 남아있는 동안 다시 사용된다.
+ * 그룹들은 스레드 풀에서 병렬로 실행한다. 한 그룹이 너무 커지지 않도록 그룹 크기를 제한한다.
+ * 
+ * <pre>
+ * List&lt;TopDocs&gt; results = new BatchSearcher(executor).search(searcher, queries, 10);
+ * </pre>
+ */
+public class BatchSearcher {
+
+	private final ExecutorService executor;
+	private int maxGroupSize = 16;
+
+	/**
+	 * @param executor 그룹들을 실행할 스레드 풀. null 이면 호출한 스레드에서 차례로 실행한다.
+	 */
+	public BatchSearcher(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * 한 그룹에 넣을 최대 쿼리 수. 작을수록 병렬성이 높아지고 클수록 공유가 늘어난다.
+	 * 
+	 * @param maxGroupSize
+	 * @return
+	 */
+	public BatchSearcher setMaxGroupSize(int maxGroupSize) {
+		if (maxGroupSize < 1) {
+			throw new IllegalArgumentException("maxGroupSize must be >= 1, got " + maxGroupSize);
+		}
+		this.maxGroupSize = maxGroupSize;
+		return this;
+	}
+
+	/**
+	 * 쿼리들을 검색한다.
+	 * 
+	 * @param searcher
+	 * @param queries
+	 * @param n 쿼리마다 조회할 결과 수
+	 * @return 쿼리와 같은 순서의 검색 결과. 같은 쿼리는 같은 결과 객체를 공유한다.
+	 * @throws IOException
+	 */
+	public List<TopDocs> search(final IndexSearcher searcher, List<Query> queries, final int n) throws IOException {
+		// 같은 쿼리는 한번만 실행한다.
+		Map<Query, Integer> distinct = new LinkedHashMap<>();
+		int[] slots = new int[queries.size()];
+		for (int i = 0; i < slots.length; i++) {
+			Integer slot = distinct.get(queries.get(i));
+			if (slot == null) {
+				slot = distinct.size();
+				distinct.put(queries.get(i), slot);
+			}
+			slots[i] = slot;
+		}
+
+		final List<Query> rewritten = new ArrayList<>(distinct.size());
+		for (Query query : distinct.keySet()) {
+			rewritten.add(searcher.rewrite(query));
+		}
+
+		final TopDocs[] results = new TopDocs[rewritten.size()];
+		List<int[]> groups = group(rewritten);
+		if (executor == null) {
+			for (int[] group : groups) {
+				searchGroup(searcher, rewritten, group, n, results);
+			}
+		} else {
+			List<Future<Void>> futures = new ArrayList<>(groups.size());
+			for (final int[] group : groups) {
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						searchGroup(searcher, rewritten, group, n, results);
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("interrupted while searching batch", e);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		}
+
+		TopDocs[] ordered = new TopDocs[slots.length];
+		for (int i = 0; i < slots.length; i++) {
+			ordered[i] = results[slots[i]];
+		}
+		return Arrays.asList(ordered);
+	}
+
+	/**
+	 * 단어를 공유하는 쿼리들을 묶는다. 쿼리는 먼저 나온 그룹 중에 같은 단어를 가지고 아직 가득 차지 않은 그룹에 들어간다.
+	 * 
+	 * @param queries rewrite 된 쿼리
+	 * @return 그룹마다 쿼리 위치
+	 */
+	List<int[]> group(List<Query> queries) {
+		List<List<Integer>> groups = new ArrayList<>();
+		Map<Term, List<Integer>> termGroups = new HashMap<>();
+		for (int i = 0; i < queries.size(); i++) {
+			Set<Term> terms = new HashSet<>();
+			try {
+				queries.get(i).extractTerms(terms);
+			} catch (UnsupportedOperationException e) {
+				// 단어를 알 수 없는 쿼리는 따로 실행한다.
+			}
+
+			List<Integer> target = null;
+			for (Term term : terms) {
+				List<Integer> candidate = termGroups.get(term);
+				if (candidate != null && candidate.size() < maxGroupSize) {
+					target = candidate;
+					break;
+				}
+			}
+			if (target == null) {
+				target = new ArrayList<>();
+				groups.add(target);
+			}
+			target.add(i);
+			for (Term term : terms) {
+				List<Integer> current = termGroups.get(term);
+				if (current == null || current.size() >= maxGroupSize) {
+					termGroups.put(term, target);
+				}
+			}
+		}
+
+		List<int[]> result = new ArrayList<>(groups.size());
+		for (List<Integer> group : groups) {
+			int[] members = new int[group.size()];
+			for (int i = 0; i < members.length; i++) {
+				members[i] = group.get(i);
+			}
+			result.add(members);
+		}
+		return result;
+	}
+
+	/**
+	 * 한 그룹의 쿼리들을 세그먼트 단위로 번갈아 실행한다.
+	 */
+	private static void searchGroup(IndexSearcher searcher, List<Query> queries, int[] group, int n,
+			TopDocs[] results) throws IOException {
+		Weight[] weights = new Weight[group.length];
+		TopScoreDocCollector[] collectors = new TopScoreDocCollector[group.length];
+		for (int i = 0; i < group.length; i++) {
+			weights[i] = searcher.createNormalizedWeight(queries.get(group[i]));
+			collectors[i] = TopScoreDocCollector.create(n, !weights[i].scoresDocsOutOfOrder());
+		}
+		for (AtomicReaderContext context : searcher.getIndexReader().leaves()) {
+			for (int i = 0; i < group.length; i++) {
+				collectors[i].setNextReader(context);
+				BulkScorer scorer = weights[i].bulkScorer(context, !collectors[i].acceptsDocsOutOfOrder(),
+						context.reader().getLiveDocs());
+				if (scorer != null) {
+					scorer.score(collectors[i]);
+				}
+			}
+		}
+		for (int i = 0; i < group.length; i++) {
+			results[group[i]] = collectors[i].topDocs();
+		}
+	}
+
+}
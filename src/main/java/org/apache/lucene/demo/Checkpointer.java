@@ -0,0 +1,234 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.store.Directory;
+
+/**
+ * 색인 도중 주기적으로 commit 하고, 탐색 위치(crawl cursor)를 commit user data 에 저장한다.
+ * <p>
+ * 탐색기는 디렉토리를 이름순으로 탐색하므로 파일의 순서가 항상 같다.
+ * 탐색 순서대로 번호를 매기고, 그 번호까지의 모든 파일이 색인된 마지막 파일의 path 를 cursor 로 저장한다.
+ * 색인이 중단된 뒤 다시 실행하면 cursor 이전의 파일과 디렉토리는 건너뛴다.
+ * <p>
+ * commit 주기는 문서 수, 바이트, 경과 시간 중 먼저 도달하는 기준을 따른다.
+ */
+public class Checkpointer {
+
+	/** commit user data 에 저장되는 cursor 의 key */
+	public static final String CURSOR_KEY = "crawl.cursor";
+
+	private static final Pattern SEPARATOR = Pattern.compile(Pattern.quote(File.separator));
+
+	private final IndexShards shards;
+	private final String resumeCursor;
+	private final long everyDocs;
+	private final long everyBytes;
+	private final long everyNanos;
+
+	/** 탐색 순서 번호 */
+	private final AtomicLong nextSeq = new AtomicLong();
+	private final Map<String, Long> pending = new ConcurrentHashMap<>();
+
+	/** 색인이 끝났지만 아직 앞 번호가 끝나지 않은 파일 */
+	private final TreeMap<Long, String> completed = new TreeMap<>();
+	private long watermark = -1;
+	private String cursor;
+
+	private final AtomicLong docsSinceCommit = new AtomicLong();
+	private final AtomicLong bytesSinceCommit = new AtomicLong();
+	private volatile long lastCommitNanos = System.nanoTime();
+	private final AtomicBoolean committing = new AtomicBoolean();
+	private final AtomicLong checkpoints = new AtomicLong();
+
+	/**
+	 * @param shards commit 할 Writer 들
+	 * @param resumeCursor 이전 실행에서 저장된 cursor. null 이면 처음부터 탐색한다.
+	 * @param everyDocs 이 수만큼 파일을 처리할때마다 commit 한다. 0 이면 사용하지 않는다.
+	 * @param everyBytes 이 크기만큼 파일을 처리할때마다 commit 한다. 0 이면 사용하지 않는다.
+	 * @param everySeconds 이 시간이 지날때마다 commit 한다. 0 이면 사용하지 않는다.
+	 */
+	public Checkpointer(IndexShards shards, String resumeCursor, long everyDocs, long everyBytes, long everySeconds) {
+		this.shards = shards;
+		this.resumeCursor = resumeCursor;
+		this.cursor = resumeCursor;
+		this.everyDocs = everyDocs;
+		this.everyBytes = everyBytes;
+		this.everyNanos = TimeUnit.SECONDS.toNanos(everySeconds);
+	}
+
+	/**
+	 * 마지막 commit 에 저장된 cursor 를 읽는다.
+	 * 
+	 * @param dirs shard 디렉토리들
+	 * @return shard 들의 cursor 중 탐색 순서가 가장 앞선 것. 이어서 색인할 것이 없으면 null.
+	 * @throws IOException
+	 */
+	public static String readCursor(Directory... dirs) throws IOException {
+		String min = null;
+		for (Directory dir : dirs) {
+			if (!DirectoryReader.indexExists(dir)) {
+				return null;
+			}
+			List<IndexCommit> commits = DirectoryReader.listCommits(dir);
+			String cursor = commits.get(commits.size() - 1).getUserData().get(CURSOR_KEY);
+			if (cursor == null) {
+				// 이 shard 는 처음부터 다시 색인해야 한다.
+				return null;
+			}
+			if (min == null || compare(cursor, min) < 0) {
+				min = cursor;
+			}
+		}
+		return min;
+	}
+
+	/**
+	 * 두 path 를 탐색 순서로 비교한다. (path 구성요소를 이름순으로 비교)
+	 */
+	static int compare(String a, String b) {
+		String[] as = SEPARATOR.split(a);
+		String[] bs = SEPARATOR.split(b);
+		for (int i = 0; i < Math.min(as.length, bs.length); i++) {
+			int cmp = as[i].compareTo(bs[i]);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return as.length - bs.length;
+	}
+
+	/**
+	 * 탐색기가 파일 또는 디렉토리를 방문할때 호출한다.
+	 * cursor 이전에 이미 색인된 것이면 false 를 반환한다.
+	 * 파일이면 탐색 순서 번호를 부여한다.
+	 * 
+	 * @param file
+	 * @param isDirectory
+	 * @return 방문(색인)해야 하면 true
+	 */
+	public boolean accept(File file, boolean isDirectory) {
+		String path = file.getPath();
+		if (resumeCursor != null) {
+			if (isDirectory) {
+				// cursor 를 포함하는 디렉토리는 내려가서 확인한다.
+				if (resumeCursor.startsWith(path + File.separator)) {
+					return true;
+				}
+				if (compare(path, resumeCursor) < 0) {
+					return false;
+				}
+			} else if (compare(path, resumeCursor) <= 0) {
+				return false;
+			}
+		}
+		if (!isDirectory) {
+			pending.put(path, nextSeq.getAndIncrement());
+		}
+		return true;
+	}
+
+	/**
+	 * 파일 하나의 처리가 끝났을때 호출한다. (색인, 건너뜀 모두)
+	 * commit 주기에 도달했으면 checkpoint 를 수행한다.
+	 * 
+	 * @param file
+	 * @param bytes 처리한 바이트 수
+	 * @throws IOException
+	 */
+	public void done(File file, long bytes) throws IOException {
+		Long seq = pending.remove(file.getPath());
+		if (seq == null) {
+			return;
+		}
+		synchronized (this) {
+			completed.put(seq, file.getPath());
+			while (!completed.isEmpty() && completed.firstKey() == watermark + 1) {
+				Map.Entry<Long, String> first = completed.pollFirstEntry();
+				watermark = first.getKey();
+				cursor = first.getValue();
+			}
+		}
+
+		long docs = docsSinceCommit.incrementAndGet();
+		long total = bytesSinceCommit.addAndGet(bytes);
+		if ((everyDocs > 0 && docs >= everyDocs)
+				|| (everyBytes > 0 && total >= everyBytes)
+				|| (everyNanos > 0 && System.nanoTime() - lastCommitNanos >= everyNanos)) {
+			// 다른 스레드가 commit 중이면 기다리지 않고 색인을 계속한다.
+			if (committing.compareAndSet(false, true)) {
+				try {
+					checkpoint();
+				} finally {
+					committing.set(false);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 현재 cursor 를 commit user data 에 저장하고 모든 shard 를 commit 한다.
+	 * cursor 이전의 파일은 모두 Writer 에 추가되었으므로 commit 에 포함된다.
+	 * 
+	 * @throws IOException
+	 */
+	public void checkpoint() throws IOException {
+		String current;
+		synchronized (this) {
+			current = cursor;
+		}
+		docsSinceCommit.set(0);
+		bytesSinceCommit.set(0);
+		lastCommitNanos = System.nanoTime();
+
+		Map<String, String> userData = current == null
+				? Collections.<String, String>emptyMap()
+				: Collections.singletonMap(CURSOR_KEY, current);
+		for (int i = 0; i < shards.size(); i++) {
+			shards.get(i).setCommitData(userData);
+			shards.get(i).commit();
+		}
+		checkpoints.incrementAndGet();
+		System.out.println("checkpoint " + checkpoints.get() + ": cursor=" + current);
+	}
+
+	/**
+	 * 탐색이 모두 끝났을때 호출한다. cursor 를 지워서 다음 실행이 처음부터 시작하도록 한다.
+	 * 실제 commit 은 Writer 를 close 할때 일어난다.
+	 */
+	public void finish() {
+		for (int i = 0; i < shards.size(); i++) {
+			shards.get(i).setCommitData(Collections.<String, String>emptyMap());
+		}
+	}
+
+}
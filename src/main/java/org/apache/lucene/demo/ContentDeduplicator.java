@@ -0,0 +1,140 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 파일 내용의 hash 값으로 byte 단위로 같은 파일을 찾는다.
+ * <p>
+ * 처음 발견된 파일이 대표(canonical) 문서가 되고, 이후에 발견된 같은 내용의 파일은 내용을 분석하지 않고
+ * path 만 가진 문서로 색인한다. hash → 대표 path 테이블은 메모리에 보관한다.
+ * 메모리에 올려서 색인하는 파일은 읽은 내용으로 hash 를 계산하므로 파일을 두번 읽지 않는다.
+ * 스트림으로 색인하는 큰 파일은 중복이면 분석하지 않도록 색인하기 전에 hash 만 계산한다.
+ */
+public class ContentDeduplicator {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** (hash, 크기) → 대표 path */
+	private final ConcurrentMap<String, String> canonicals = new ConcurrentHashMap<>();
+
+	/** 대표 path → (hash, 크기) */
+	private final ConcurrentMap<String, String> keys = new ConcurrentHashMap<>();
+
+	private final ThreadLocal<MessageDigest> digests = new ThreadLocal<MessageDigest>() {
+		@Override
+		protected MessageDigest initialValue() {
+			try {
+				return MessageDigest.getInstance("MD5");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	};
+
+	private final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[BUFFER_SIZE];
+		}
+	};
+
+	/**
+	 * 이미 읽어둔 파일 내용의 hash 값을 계산한다.
+	 * 
+	 * @param bytes 파일 내용 (position ~ limit). position 은 바뀌지 않는다.
+	 * @return hash 값 (Base64)
+	 */
+	public String hash(ByteBuffer bytes) {
+		MessageDigest digest = digests.get();
+		digest.reset();
+		digest.update(bytes.duplicate());
+		return Base64.getEncoder().encodeToString(digest.digest());
+	}
+
+	/**
+	 * 이미 읽어둔 내용으로 파일을 등록한다.
+	 * 
+	 * @param file
+	 * @param bytes 파일 내용 (position ~ limit)
+	 * @return 이미 등록된 대표 path. 이 파일이 대표이면 null.
+	 */
+	public String register(File file, ByteBuffer bytes) {
+		return register(file, hash(bytes));
+	}
+
+	/**
+	 * 파일을 처음부터 끝까지 읽어서 hash 값만 계산하고 등록한다. 메모리에 올리지 않고 스트림으로 색인하는 큰 파일에 사용한다.
+	 * 
+	 * @param file
+	 * @return 이미 등록된 대표 path. 이 파일이 대표이면 null.
+	 * @throws IOException
+	 */
+	public String register(File file) throws IOException {
+		MessageDigest digest = digests.get();
+		digest.reset();
+		byte[] buffer = buffers.get();
+		InputStream in = new DigestInputStream(new FileInputStream(file), digest);
+		try {
+			while (in.read(buffer) != -1) {
+				// hash 만 계산한다.
+			}
+		} finally {
+			in.close();
+		}
+		return register(file, Base64.getEncoder().encodeToString(digest.digest()));
+	}
+
+	private String register(File file, String hash) {
+		String key = hash + ":" + file.length();
+		String canonical = canonicals.putIfAbsent(key, file.getPath());
+		if (canonical == null) {
+			keys.put(file.getPath(), key);
+		}
+		return canonical;
+	}
+
+	/**
+	 * 삭제되었거나 내용이 바뀐 대표 파일을 테이블에서 뺀다. 이후 같은 내용의 파일은 새 대표가 된다.
+	 * 
+	 * @param path
+	 */
+	public void unregister(String path) {
+		String key = keys.remove(path);
+		if (key != null) {
+			canonicals.remove(key, path);
+		}
+	}
+
+	/** 등록된 서로 다른 내용의 수 */
+	public int size() {
+		return canonicals.size();
+	}
+
+}
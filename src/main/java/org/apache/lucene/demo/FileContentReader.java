@@ -0,0 +1,239 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 파일 내용을 스레드별로 재사용하는 작은 char 버퍼에 UTF-8 로 조금씩 디코딩하는 {@link Reader} 로 제공한다.
+ * <p>
+ * 작은 파일은 스레드마다 하나씩 가지고 있는 direct {@link ByteBuffer} 로 읽고,
+ * {@code mmapThreshold} 이상인 파일은 {@link FileChannel#map} 으로 매핑하여 복사 없이 디코딩한다.
+ * {@link FileInputStream} → {@link InputStreamReader} → {@link BufferedReader} 로 이어지는
+ * 파일마다의 버퍼 할당과 중간 복사가 사라진다. 디코딩은 Reader 를 읽을때 고정 크기 char 버퍼 단위로 하므로
+ * 파일 크기만큼의 char 버퍼를 만들지 않는다.
+ * <p>
+ * 반환된 Reader 는 같은 스레드에서 다음 {@link #open(File)} 을 호출하기 전까지만 유효하다.
+ */
+public class FileContentReader {
+
+	/** mmap 을 사용할 최소 파일 크기 기본값 (1MB) */
+	public static final int DEFAULT_MMAP_THRESHOLD = 1 << 20;
+
+	/** 이보다 큰 파일은 메모리에 올리지 않고 스트림으로 읽는다. (256MB) */
+	public static final long MAX_BUFFERED_BYTES = 256L << 20;
+
+	/** 한번에 디코딩하는 char 수 */
+	static final int DECODE_CHARS = 8192;
+
+	private final int mmapThreshold;
+
+	private final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>() {
+		@Override
+		protected Buffers initialValue() {
+			return new Buffers(mmapThreshold);
+		}
+	};
+
+	public FileContentReader() {
+		this(DEFAULT_MMAP_THRESHOLD);
+	}
+
+	/**
+	 * @param mmapThreshold 이 크기 이상인 파일은 mmap 으로 읽는다. 작은 파일용 direct 버퍼의 크기이기도 하다.
+	 */
+	public FileContentReader(int mmapThreshold) {
+		if (mmapThreshold <= 0) {
+			throw new IllegalArgumentException("mmapThreshold must be > 0 (got " + mmapThreshold + ")");
+		}
+		this.mmapThreshold = mmapThreshold;
+	}
+
+	/**
+	 * 파일 내용을 읽는 Reader 를 반환한다.
+	 * 
+	 * @param file 읽을 파일
+	 * @return 파일 내용. 사용이 끝나면 close 해야 한다.
+	 * @throws java.io.FileNotFoundException 파일을 열 수 없는 경우
+	 * @throws IOException
+	 */
+	public Reader open(File file) throws IOException {
+		ByteBuffer bytes = read(file);
+		if (bytes == null) {
+			// 너무 큰 파일은 기존처럼 스트림으로 읽는다.
+			return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+		}
+		return decode(bytes);
+	}
+
+	/**
+	 * 파일 내용을 스레드의 direct 버퍼로 읽거나 mmap 으로 매핑한다.
+	 * 
+	 * @param file 읽을 파일
+	 * @return 파일 내용 (position ~ limit). 같은 스레드에서 다음 호출 전까지만 유효하다.
+	 *         {@link #MAX_BUFFERED_BYTES} 보다 큰 파일은 null.
+	 * @throws java.io.FileNotFoundException 파일을 열 수 없는 경우
+	 * @throws IOException
+	 */
+	public ByteBuffer read(File file) throws IOException {
+		FileInputStream fis = new FileInputStream(file);
+		try {
+			FileChannel channel = fis.getChannel();
+			long length = channel.size();
+			if (length > MAX_BUFFERED_BYTES) {
+				return null;
+			}
+			if (length >= mmapThreshold) {
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			}
+			ByteBuffer bytes = buffers.get().direct();
+			bytes.clear();
+			bytes.limit((int) length);
+			while (bytes.hasRemaining()) {
+				if (channel.read(bytes) < 0) {
+					break;
+				}
+			}
+			bytes.flip();
+			return bytes;
+		} finally {
+			fis.close();
+		}
+	}
+
+	/**
+	 * 이미 읽어둔 파일 내용을 스레드의 char 버퍼에 디코딩한다.
+	 * 
+	 * @param bytes UTF-8 파일 내용 (position ~ limit)
+	 * @return 파일 내용. 같은 스레드에서 다음 호출 전까지만 유효하다. bytes 도 그동안 바뀌면 안된다.
+	 */
+	public Reader decode(ByteBuffer bytes) {
+		return buffers.get().decode(bytes);
+	}
+
+	/**
+	 * 스레드별 버퍼
+	 */
+	private static final class Buffers {
+		private final int directSize;
+		private ByteBuffer direct;
+		final DecodingReader reader = new DecodingReader();
+
+		Buffers(int directSize) {
+			this.directSize = directSize;
+		}
+
+		/** direct 버퍼는 파일을 직접 읽는 스레드에서만 필요하므로 처음 사용할때 할당한다. */
+		ByteBuffer direct() {
+			if (direct == null) {
+				direct = ByteBuffer.allocateDirect(directSize);
+			}
+			return direct;
+		}
+
+		Reader decode(ByteBuffer in) {
+			reader.reset(in);
+			return reader;
+		}
+	}
+
+	/**
+	 * ByteBuffer 를 읽는 만큼만 고정 크기 char 버퍼에 디코딩하는 재사용 가능한 Reader. close 해도 아무 일도 하지 않는다.
+	 */
+	private static final class DecodingReader extends Reader {
+		private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		private final CharBuffer chars = CharBuffer.allocate(DECODE_CHARS);
+		private ByteBuffer in;
+		private boolean done;
+
+		void reset(ByteBuffer in) {
+			this.in = in;
+			this.done = false;
+			decoder.reset();
+			chars.clear();
+			chars.flip();
+		}
+
+		/**
+		 * 다음 문자들을 디코딩한다.
+		 * 
+		 * @return 더 읽을 문자가 없으면 false
+		 */
+		private boolean fill() throws IOException {
+			while (!done) {
+				chars.clear();
+				CoderResult result = decoder.decode(in, chars, true);
+				if (result.isUnderflow()) {
+					// 입력을 모두 디코딩했다. UTF-8 은 flush 에서 남기는 문자가 없다.
+					decoder.flush(chars);
+					done = true;
+				} else if (result.isError()) {
+					result.throwException();
+				}
+				chars.flip();
+				if (chars.hasRemaining()) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!chars.hasRemaining() && !fill()) {
+				return -1;
+			}
+			int n = Math.min(len, chars.remaining());
+			chars.get(cbuf, off, n);
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = 0;
+			while (skipped < n && (chars.hasRemaining() || fill())) {
+				int k = (int) Math.min(n - skipped, chars.remaining());
+				chars.position(chars.position() + k);
+				skipped += k;
+			}
+			return skipped;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+}
@@ -0,0 +1,661 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocsEnum;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+
+/**
+ * 파일 하나를 읽어서 {@link Document} 로 만들고 {@link IndexWriter} 에 추가한다.
+ * <p>
+ * {@link IndexWriter} 는 thread-safe 하므로 여러 색인 스레드가 하나의 인스턴스를 공유할 수 있다.
+ * shard 가 여러개이면 path 의 hash 값으로 Writer 를 선택한다.
+ */
+public class FileIndexer {
+
+	private final IndexShards shards;
+	private final IndexStats stats;
+	private final IncrementalState incremental;
+	private FileContentReader contentReader;
+	private boolean reuseDocuments;
+	private Checkpointer checkpointer;
+	private ContentDeduplicator deduplicator;
+	private long chunkBytes;
+	private long maxBytes;
+	private int maxTokens;
+	private boolean alwaysUpdate;
+
+	/** 중복 문서에서 읽을 stored 필드 */
+	private static final Set<String> PATH_FIELD = Collections.singleton("path");
+
+	/** contentReader 가 없을때 미리 읽어둔 파일 내용을 디코딩한다. */
+	private final FileContentReader defaultDecoder = new FileContentReader();
+
+	/** 스레드별로 재사용하는 Document */
+	private final ThreadLocal<FileDocument> documents = new ThreadLocal<FileDocument>() {
+		@Override
+		protected FileDocument initialValue() {
+			return new FileDocument();
+		}
+	};
+
+	public FileIndexer(IndexWriter writer, IndexStats stats) {
+		this(writer, stats, null);
+	}
+
+	/**
+	 * @param writer
+	 * @param stats
+	 * @param incremental 증분 색인 상태. null 이면 모든 파일을 색인한다.
+	 */
+	public FileIndexer(IndexWriter writer, IndexStats stats, IncrementalState incremental) {
+		this(new IndexShards(writer), stats, incremental);
+	}
+
+	/**
+	 * @param shards 문서를 path 로 나누어 색인할 Writer 들
+	 * @param stats
+	 * @param incremental 증분 색인 상태. null 이면 모든 파일을 색인한다.
+	 */
+	public FileIndexer(IndexShards shards, IndexStats stats, IncrementalState incremental) {
+		this.shards = shards;
+		this.stats = stats;
+		this.incremental = incremental;
+	}
+
+	/**
+	 * 파일 내용을 mmap/direct 버퍼로 읽도록 설정한다.
+	 * null 이면 파일마다 {@link FileInputStream} 을 {@link BufferedReader} 로 감싸서 읽는다.
+	 * 색인을 시작하기 전에 설정해야 한다.
+	 * 
+	 * @param contentReader
+	 * @return this
+	 */
+	public FileIndexer setContentReader(FileContentReader contentReader) {
+		this.contentReader = contentReader;
+		return this;
+	}
+
+	/**
+	 * 스레드마다 하나의 Document 를 만들어두고 파일마다 필드 값만 바꾸어 재사용하도록 설정한다.
+	 * 파일 수가 많을때 Document/Field 객체 할당을 줄인다. 색인을 시작하기 전에 설정해야 한다.
+	 * 
+	 * @param reuseDocuments
+	 * @return this
+	 */
+	public FileIndexer setReuseDocuments(boolean reuseDocuments) {
+		this.reuseDocuments = reuseDocuments;
+		return this;
+	}
+
+	/**
+	 * 주기적으로 commit 하고 탐색 위치를 저장하도록 설정한다. 색인을 시작하기 전에 설정해야 한다.
+	 * 
+	 * @param checkpointer
+	 * @return this
+	 */
+	public FileIndexer setCheckpointer(Checkpointer checkpointer) {
+		this.checkpointer = checkpointer;
+		return this;
+	}
+
+	/**
+	 * 내용이 같은 파일을 한번만 색인하도록 설정한다. 색인을 시작하기 전에 설정해야 한다.
+	 * 중복 파일은 내용 없이 path 와 대표 path(duplicateOf) 만 가진 문서로 색인된다.
+	 * 대표 파일이 삭제되거나 바뀌면 {@link #reindexDuplicates} 로 중복 문서를 다시 색인해야 한다.
+	 * 
+	 * @param deduplicator
+	 * @return this
+	 */
+	public FileIndexer setDeduplicator(ContentDeduplicator deduplicator) {
+		this.deduplicator = deduplicator;
+		return this;
+	}
+
+	/**
+	 * 큰 파일의 색인 크기를 제한한다. 색인을 시작하기 전에 설정해야 한다.
+	 * 
+	 * 크기는 모두 파일의 UTF-8 바이트 수이다.
+	 * 
+	 * @param chunkBytes 이 크기보다 큰 파일은 이 크기의 청크 문서들로 나누어 색인한다. 0 이면 나누지 않는다.
+	 * @param maxBytes 파일 하나에서 색인할 최대 바이트 수. 나머지는 버린다. 0 이면 제한하지 않는다.
+	 * @return this
+	 */
+	public FileIndexer setChunking(long chunkBytes, long maxBytes) {
+		this.chunkBytes = chunkBytes;
+		this.maxBytes = maxBytes;
+		return this;
+	}
+
+	/**
+	 * 파일 하나에서 색인할 최대 토큰 수를 제한한다. 색인을 시작하기 전에 설정해야 한다.
+	 * 청크로 나눈 파일은 모든 청크의 토큰 수를 합해서 제한하고, 제한에 도달하면 나머지 청크는 만들지 않는다.
+	 * 
+	 * @param maxTokens 0 이면 제한하지 않는다.
+	 * @return this
+	 */
+	public FileIndexer setMaxTokens(int maxTokens) {
+		this.maxTokens = maxTokens;
+		return this;
+	}
+
+	/**
+	 * Writer 의 OpenMode 와 관계없이 항상 같은 path 의 기존 문서를 대체하도록 설정한다.
+	 * 색인이 만들어진 뒤에 변경된 파일을 반영할때 사용한다.
+	 * 
+	 * @param alwaysUpdate
+	 * @return this
+	 */
+	public FileIndexer setAlwaysUpdate(boolean alwaysUpdate) {
+		this.alwaysUpdate = alwaysUpdate;
+		return this;
+	}
+
+	/**
+	 * 탐색기가 파일 또는 디렉토리를 방문할때 호출한다.
+	 * 이전 실행에서 이미 색인한 것이면 false 를 반환한다.
+	 * 
+	 * @param file
+	 * @return 방문(색인)해야 하면 true
+	 */
+	public boolean accept(File file) {
+		return checkpointer == null || checkpointer.accept(file, file.isDirectory());
+	}
+
+	/**
+	 * 파일을 읽어서 색인을 생성한다.
+	 * 
+	 * @param file 색인할 파일
+	 * @throws IOException
+	 */
+	public void indexFile(File file) throws IOException {
+		indexFile(file, null);
+	}
+
+	/**
+	 * 미리 읽어둔 파일 내용으로 색인을 생성한다.
+	 * 
+	 * @param file 색인할 파일
+	 * @param content UTF-8 파일 내용 (position ~ limit). null 이면 파일을 직접 읽는다.
+	 * @throws IOException
+	 */
+	public void indexFile(File file, ByteBuffer content) throws IOException {
+		long bytes = index(file, content);
+		if (checkpointer != null) {
+			checkpointer.done(file, bytes);
+		}
+	}
+
+	/**
+	 * 색인할때 파일 내용이 필요한지 확인한다.
+	 * 증분 색인에서 바뀌지 않은 파일은 미리 읽을 필요가 없다.
+	 * 
+	 * @param file
+	 * @return 내용을 읽어야 하면 true
+	 */
+	public boolean needsContent(File file) {
+		return incremental == null || !incremental.isUnchanged(file);
+	}
+
+	/**
+	 * 파일을 읽어서 색인을 생성한다.
+	 * 
+	 * @param file 색인할 파일
+	 * @param content 미리 읽어둔 파일 내용. null 이면 파일을 직접 읽는다.
+	 * @return 색인한 바이트 수
+	 * @throws IOException
+	 */
+	private long index(File file, ByteBuffer content) throws IOException {
+		IncrementalState.Change change = null;
+		if (incremental != null) {
+			// 수정시간과 크기가 같으면 파일을 읽지 않고 건너뛴다.
+			change = incremental.visit(file);
+			if (change == IncrementalState.Change.UNCHANGED) {
+				stats.addSkipped();
+				return 0;
+			}
+		}
+
+		IndexWriter writer = shards.writerFor(file.getPath());
+		boolean add = !alwaysUpdate
+				&& (writer.getConfig().getOpenMode() == OpenMode.CREATE || change == IncrementalState.Change.NEW);
+		return index(writer, add, file, content, deduplicator);
+	}
+
+	/**
+	 * 파일을 읽어서 색인을 생성한다.
+	 * 
+	 * @param writer
+	 * @param add true 이면 addDocument, false 이면 같은 path 의 기존 문서(청크)를 대체한다.
+	 * @param file 색인할 파일
+	 * @param content 미리 읽어둔 파일 내용. null 이면 파일을 직접 읽는다.
+	 * @param deduplicator 같은 내용의 파일을 찾을 테이블. null 이면 찾지 않는다.
+	 * @return 색인한 바이트 수
+	 * @throws IOException
+	 */
+	private long index(IndexWriter writer, boolean add, File file, ByteBuffer content,
+			ContentDeduplicator deduplicator) throws IOException {
+		Reader contents;
+		try {
+			if (deduplicator != null) {
+				if (!add) {
+					// 이전 내용의 대표였다면 더 이상 그 내용의 대표가 아니다.
+					deduplicator.unregister(file.getPath());
+				}
+				if (content == null && (chunkBytes <= 0 || file.length() <= chunkBytes)) {
+					// 색인할 내용을 한번 읽어서 hash 계산과 디코딩에 같이 사용한다.
+					content = decoder().read(file);
+				}
+				// 메모리에 올리지 않는 큰 파일은 분석하기 전에 한번 읽어서 hash 만 계산한다.
+				String canonical = content != null ? deduplicator.register(file, content) : deduplicator.register(file);
+				if (canonical != null) {
+					// 같은 내용의 파일이 이미 색인되었으면 분석하지 않고 path 만 색인한다.
+					writeDuplicate(writer, add, file, canonical);
+					return 0;
+				}
+			}
+			contents = content != null ? decoder().decode(content) : openContents(file);
+		} catch (FileNotFoundException fnfe) {
+			return 0;
+		}
+
+		try {
+			write(writer, add, file, contents);
+			long length = file.length();
+			stats.addFile(length);
+			return length;
+
+		} finally {
+			contents.close();
+		}
+	}
+
+	/**
+	 * 파일 내용으로 문서를 만들어 색인한다.
+	 * 청크 크기보다 큰 파일은 path 가 같고 chunk 번호가 다른 여러개의 문서로 나누어 색인한다.
+	 * 
+	 * @param writer
+	 * @param add true 이면 addDocument, false 이면 같은 path 의 기존 문서를 대체한다.
+	 * @param file
+	 * @param contents 파일 내용
+	 * @throws IOException
+	 */
+	private void write(IndexWriter writer, boolean add, File file, Reader contents) throws IOException {
+		Term pathTerm = new Term("path", file.getPath());
+		// 파일 전체에서 남은 토큰 수
+		int[] tokens = maxTokens > 0 ? new int[] { maxTokens } : null;
+
+		if (chunkBytes <= 0 || file.length() <= chunkBytes) {
+			// Document 객체 생성 (재사용 모드이면 스레드의 Document 에 값만 설정한다)
+			FileDocument fileDoc = reuseDocuments ? documents.get() : new FileDocument();
+			Document doc = reset(fileDoc, writer, file,
+					maxBytes > 0 ? new BoundedReader(contents, maxBytes) : contents, tokens);
+			if (add) {
+				System.out.println("adding " + file);
+				writer.addDocument(doc);
+			} else {
+				System.out.println("updating " + file);
+				writer.updateDocument(pathTerm, doc);
+			}
+			return;
+		}
+
+		// 큰 파일은 청크 단위로 나누어 색인한다. 청크 하나씩 분석하므로 메모리 사용량이 청크 크기로 제한된다.
+		PushbackReader in = new PushbackReader(contents, 1);
+		long remaining = maxBytes > 0 ? maxBytes : Long.MAX_VALUE;
+		int chunk = 0;
+		while (remaining > 0 && (tokens == null || tokens[0] > 0)) {
+			int c = in.read();
+			if (c == -1) {
+				break;
+			}
+			in.unread(c);
+
+			BoundedReader chunkReader = new BoundedReader(in, Math.min(chunkBytes, remaining));
+			Document doc = reset(new FileDocument(), writer, file, chunkReader, tokens);
+			doc.add(new IntField("chunk", chunk, Field.Store.YES));
+			if (chunk == 0 && !add) {
+				// 첫번째 청크가 기존 문서(청크)들을 모두 대체한다.
+				writer.updateDocument(pathTerm, doc);
+			} else {
+				writer.addDocument(doc);
+			}
+			// 토큰 수 제한으로 분석이 중간에 멈췄어도 다음 청크는 정확한 위치에서 시작해야 한다.
+			remaining -= chunkReader.skipRemaining();
+			chunk++;
+		}
+		System.out.println((add ? "adding " : "updating ") + file + " (" + chunk + " chunks)");
+	}
+
+	/**
+	 * 문서의 필드 값을 바꾼다. 토큰 수를 제한하면 Writer 의 분석기로 직접 분석해서 남은 토큰 수만큼만 색인한다.
+	 * 
+	 * @param tokens 파일 전체에서 남은 토큰 수. 색인한 토큰 수만큼 줄어든다. null 이면 제한하지 않는다.
+	 */
+	private Document reset(FileDocument fileDoc, IndexWriter writer, File file, Reader contents, int[] tokens)
+			throws IOException {
+		if (tokens == null) {
+			return fileDoc.reset(file, contents);
+		}
+		TokenStream stream = writer.getAnalyzer().tokenStream("contents", contents);
+		return fileDoc.reset(file, new TokenBudgetFilter(stream, tokens));
+	}
+
+	/**
+	 * 중복 파일을 내용 없이 path, 수정시간, 크기와 대표 path 만 가진 문서로 색인한다.
+	 * path 로 찾거나 삭제할 수 있고 증분 색인에서도 다른 파일처럼 비교된다.
+	 * 
+	 * @param writer
+	 * @param add true 이면 addDocument, false 이면 같은 path 의 기존 문서(청크)를 대체한다.
+	 * @param file 중복 파일
+	 * @param canonical 같은 내용으로 먼저 색인된 대표 path
+	 * @throws IOException
+	 */
+	private void writeDuplicate(IndexWriter writer, boolean add, File file, String canonical) throws IOException {
+		Document doc = new FileDocument().reset(file, new StringReader(""));
+		doc.add(new StringField("duplicateOf", canonical, Field.Store.YES));
+		if (add) {
+			writer.addDocument(doc);
+		} else {
+			writer.updateDocument(new Term("path", file.getPath()), doc);
+		}
+		System.out.println("duplicate " + file + " of " + canonical);
+		stats.addDuplicate();
+	}
+
+	/**
+	 * 삭제되었거나 내용이 바뀐 파일을 대표로 가리키는 중복 문서들을 다시 색인한다.
+	 * 대표 파일의 지금 내용과 같은 중복 파일은 계속 대표 파일을 가리키고, 나머지 중 첫번째 파일이
+	 * 새 대표 문서가 되며 그 다음 파일들은 새 대표를 가리킨다.
+	 * 삭제와 수정이 Writer 에 반영된 뒤에 호출해야 한다.
+	 * 
+	 * @param paths 삭제되었거나 내용이 바뀐 파일 또는 디렉토리의 path. 디렉토리이면 그 아래의 모든 path 를 확인한다.
+	 * @return 다시 색인한 중복 파일의 수
+	 * @throws IOException
+	 */
+	public int reindexDuplicates(Collection<String> paths) throws IOException {
+		if (paths.isEmpty()) {
+			return 0;
+		}
+		int reindexed = 0;
+		for (Map.Entry<String, List<String>> entry : findDuplicates(paths).entrySet()) {
+			File canonical = new File(entry.getKey());
+			ContentDeduplicator group = deduplicator;
+			if (group == null) {
+				// 같은 대표를 가리키던 파일들끼리만 비교한다.
+				group = new ContentDeduplicator();
+				if (canonical.isFile()) {
+					group.register(canonical);
+				}
+			} else if (!canonical.exists()) {
+				group.unregister(canonical.getPath());
+			}
+			for (String path : entry.getValue()) {
+				File file = new File(path);
+				// 삭제된 중복 파일의 문서는 이미 삭제되었다.
+				if (file.isFile()) {
+					index(shards.writerFor(path), false, file, null, group);
+					reindexed++;
+				}
+			}
+		}
+		return reindexed;
+	}
+
+	/**
+	 * 색인에서 path 또는 그 아래의 path 를 대표로 가리키는 중복 문서를 찾는다.
+	 * 
+	 * @return 대표 path → 중복 파일 path 목록 (path 순)
+	 */
+	private Map<String, List<String>> findDuplicates(Collection<String> paths) throws IOException {
+		Map<String, List<String>> duplicates = new TreeMap<>();
+		IndexReader[] readers = new IndexReader[shards.size()];
+		for (int i = 0; i < readers.length; i++) {
+			readers[i] = DirectoryReader.open(shards.get(i), true);
+		}
+		IndexReader reader = new MultiReader(readers);
+		try {
+			for (AtomicReaderContext context : reader.leaves()) {
+				AtomicReader leaf = context.reader();
+				Terms terms = leaf.terms("duplicateOf");
+				if (terms == null) {
+					continue;
+				}
+				TermsEnum termsEnum = terms.iterator(null);
+				DocsEnum docsEnum = null;
+				for (String path : paths) {
+					BytesRef prefix = new BytesRef(path);
+					if (termsEnum.seekCeil(prefix) == TermsEnum.SeekStatus.END) {
+						continue;
+					}
+					for (BytesRef term = termsEnum.term(); term != null && StringHelper.startsWith(term, prefix);
+							term = termsEnum.next()) {
+						String canonical = term.utf8ToString();
+						if (canonical.length() > path.length() && !canonical.startsWith(File.separator, path.length())) {
+							// 이름이 path 로 시작하는 다른 파일이다.
+							continue;
+						}
+						docsEnum = termsEnum.docs(leaf.getLiveDocs(), docsEnum, DocsEnum.FLAG_NONE);
+						while (docsEnum.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+							List<String> list = duplicates.get(canonical);
+							if (list == null) {
+								list = new ArrayList<>();
+								duplicates.put(canonical, list);
+							}
+							list.add(leaf.document(docsEnum.docID(), PATH_FIELD).get("path"));
+						}
+					}
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		for (List<String> list : duplicates.values()) {
+			Collections.sort(list);
+		}
+		return duplicates;
+	}
+
+	/**
+	 * UTF-8 로 인코딩했을때 최대 limit 바이트에 해당하는 문자만 읽는 Reader.
+	 * 파일 크기와 같은 단위로 제한하므로 청크 경계가 파일의 바이트 위치와 일치한다.
+	 * 마지막 문자가 제한을 넘으면 그 문자까지만 읽는다 (최대 2 바이트 초과).
+	 * close 해도 원본 Reader 는 닫지 않는다.
+	 */
+	static final class BoundedReader extends Reader {
+		/** UTF-8 에서 char 하나가 차지하는 최대 바이트 수 */
+		private static final int MAX_BYTES_PER_CHAR = 3;
+
+		private final Reader in;
+		private long remaining;
+		private long read;
+		private char[] skipBuffer;
+
+		BoundedReader(Reader in, long limit) {
+			this.in = in;
+			this.remaining = limit;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			// 남은 바이트를 넘지 않는 만큼만 읽는다. 1 문자씩은 항상 읽을 수 있어야 진행된다.
+			int n = in.read(cbuf, off, (int) Math.min(len, Math.max(1, remaining / MAX_BYTES_PER_CHAR)));
+			for (int i = off; i < off + n; i++) {
+				int bytes = utf8Length(cbuf[i]);
+				remaining -= bytes;
+				read += bytes;
+			}
+			return n;
+		}
+
+		/**
+		 * surrogate pair 는 각각 2 바이트로 세어 합이 4 바이트가 된다.
+		 */
+		private static int utf8Length(char c) {
+			if (c < 0x80) {
+				return 1;
+			} else if (c < 0x800 || Character.isSurrogate(c)) {
+				return 2;
+			}
+			return 3;
+		}
+
+		/**
+		 * 아직 읽지 않은 내용을 분석하지 않고 건너뛴다.
+		 * 
+		 * @return 이 Reader 에서 읽거나 건너뛴 전체 바이트 수
+		 */
+		long skipRemaining() throws IOException {
+			if (skipBuffer == null) {
+				skipBuffer = new char[1024];
+			}
+			while (read(skipBuffer, 0, skipBuffer.length) != -1) {
+			}
+			return read;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * 여러 문서(청크)가 공유하는 남은 토큰 수만큼만 토큰을 전달하는 filter.
+	 * 제한에 도달하면 나머지 입력은 읽지 않는다.
+	 */
+	static final class TokenBudgetFilter extends TokenFilter {
+		private final int[] remaining;
+
+		TokenBudgetFilter(TokenStream in, int[] remaining) {
+			super(in);
+			this.remaining = remaining;
+		}
+
+		@Override
+		public boolean incrementToken() throws IOException {
+			if (remaining[0] <= 0 || !input.incrementToken()) {
+				return false;
+			}
+			remaining[0]--;
+			return true;
+		}
+	}
+
+	/**
+	 * 파일 하나에 해당하는 Document 와 필드들.
+	 * {@link #reset} 으로 필드 값을 바꾸어 다음 파일에 재사용할 수 있다.
+	 */
+	static final class FileDocument {
+		private final Document doc = new Document();
+		private final Field path = new StringField("path", "", Field.Store.YES);
+		private final Field modified = new LongField("modified", 0L, Field.Store.NO);
+		private final Field modifiedValues = new NumericDocValuesField("modified", 0L);
+		private final Field size = new NumericDocValuesField("size", 0L);
+		private final Field contents = new TextField("contents", new StringReader(""));
+
+		FileDocument() {
+			doc.add(path);
+			doc.add(modified);
+			doc.add(modifiedValues);
+			doc.add(size);
+			doc.add(contents);
+		}
+
+		Document reset(File file, Reader reader) {
+			long lastModified = file.lastModified();
+			path.setStringValue(file.getPath());
+			modified.setLongValue(lastModified);
+			modifiedValues.setLongValue(lastModified);
+			size.setLongValue(file.length());
+			contents.setTokenStream(null);
+			contents.setReaderValue(reader);
+			return doc;
+		}
+
+		/**
+		 * 이미 분석한 내용으로 필드 값을 바꾼다.
+		 */
+		Document reset(File file, TokenStream tokens) {
+			reset(file, new StringReader(""));
+			contents.setTokenStream(tokens);
+			return doc;
+		}
+	}
+
+	/**
+	 * 미리 읽어둔 파일 내용을 디코딩할 reader.
+	 */
+	private FileContentReader decoder() {
+		return contentReader != null ? contentReader : defaultDecoder;
+	}
+
+	/**
+	 * 파일 내용을 읽는 Reader 를 연다.
+	 */
+	private Reader openContents(File file) throws IOException {
+		// 청크로 나눌 파일은 전체를 메모리에 올리지 않고 스트림으로 읽는다.
+		if (contentReader != null && (chunkBytes <= 0 || file.length() <= chunkBytes)) {
+			return contentReader.open(file);
+		}
+		return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,202 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DocsEnum;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+
+/**
+ * 증분 색인을 위해 기존 색인에 들어있는 path → (modified, size) 정보를 보관한다.
+ * <p>
+ * 색인을 열때 한번만 {@code path} term 과 {@code modified}, {@code size} doc values 를 읽어서
+ * 메모리에 올려두고, 파일을 탐색하면서 방문한 path 는 맵에서 제거한다.
+ * 탐색이 끝난 뒤 맵에 남아있는 path 는 파일시스템에서 사라진 파일이므로 색인에서 삭제한다.
+ */
+public class IncrementalState {
+
+	/** 파일의 변경 여부 */
+	public enum Change {
+		/** 색인에 없는 파일 */
+		NEW,
+		/** 수정시간 또는 크기가 바뀐 파일 */
+		MODIFIED,
+		/** 바뀌지 않은 파일 */
+		UNCHANGED
+	}
+
+	private static final long UNKNOWN = -1;
+
+	private final Map<String, long[]> known = new ConcurrentHashMap<>();
+
+	/** 탐색중에 발견한 수정된 파일의 path */
+	private final Set<String> modified = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	/** 빈 상태 (색인이 아직 없는 경우) */
+	public IncrementalState() {
+	}
+
+	/**
+	 * 색인에서 path → (modified, size) 맵을 읽는다.
+	 * doc values 가 없는 예전 색인의 문서는 항상 {@link Change#MODIFIED} 로 판정된다.
+	 * 
+	 * @param reader 기존 색인
+	 * @return 읽어들인 상태
+	 * @throws IOException
+	 */
+	public static IncrementalState load(IndexReader reader) throws IOException {
+		return load(reader, "");
+	}
+
+	/**
+	 * 색인에서 prefix 로 시작하는 path 의 (modified, size) 맵만 읽는다.
+	 * 디렉토리 하나만 다시 탐색할때 사용한다.
+	 * 
+	 * @param reader 기존 색인
+	 * @param prefix path prefix. 디렉토리이면 구분자로 끝나야 한다.
+	 * @return 읽어들인 상태
+	 * @throws IOException
+	 */
+	public static IncrementalState load(IndexReader reader, String prefix) throws IOException {
+		BytesRef prefixBytes = new BytesRef(prefix);
+		IncrementalState state = new IncrementalState();
+		for (AtomicReaderContext context : reader.leaves()) {
+			AtomicReader leaf = context.reader();
+			Terms terms = leaf.terms("path");
+			if (terms == null) {
+				continue;
+			}
+			NumericDocValues modified = leaf.getNumericDocValues("modified");
+			NumericDocValues size = leaf.getNumericDocValues("size");
+			Bits liveDocs = leaf.getLiveDocs();
+
+			TermsEnum termsEnum = terms.iterator(null);
+			DocsEnum docsEnum = null;
+			if (termsEnum.seekCeil(prefixBytes) == TermsEnum.SeekStatus.END) {
+				continue;
+			}
+			for (BytesRef term = termsEnum.term(); term != null && StringHelper.startsWith(term, prefixBytes);
+					term = termsEnum.next()) {
+				docsEnum = termsEnum.docs(liveDocs, docsEnum, DocsEnum.FLAG_NONE);
+				int doc = docsEnum.nextDoc();
+				if (doc != DocIdSetIterator.NO_MORE_DOCS) {
+					state.known.put(term.utf8ToString(), new long[] {
+							modified == null ? UNKNOWN : modified.get(doc),
+							size == null ? UNKNOWN : size.get(doc) });
+				}
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * 파일의 변경 여부를 판정하고 방문한 것으로 표시한다.
+	 * 
+	 * @param file 탐색중에 발견한 파일
+	 * @return 변경 여부
+	 */
+	public Change visit(File file) {
+		long[] previous = known.remove(file.getPath());
+		if (previous == null) {
+			return Change.NEW;
+		}
+		if (previous[0] == file.lastModified() && previous[1] == file.length()) {
+			return Change.UNCHANGED;
+		}
+		modified.add(file.getPath());
+		return Change.MODIFIED;
+	}
+
+	/**
+	 * 탐색중에 {@link Change#MODIFIED} 로 판정한 파일의 path.
+	 * 
+	 * @return
+	 */
+	public Set<String> getModified() {
+		return modified;
+	}
+
+	/**
+	 * 파일이 바뀌지 않았는지 확인만 하고 방문한 것으로 표시하지는 않는다.
+	 * 
+	 * @param file
+	 * @return 수정시간과 크기가 같으면 true
+	 */
+	public boolean isUnchanged(File file) {
+		long[] previous = known.get(file.getPath());
+		return previous != null && previous[0] == file.lastModified() && previous[1] == file.length();
+	}
+
+	/** 아직 방문하지 않은 path 의 수 */
+	public int remaining() {
+		return known.size();
+	}
+
+	/**
+	 * 탐색중에 방문하지 않은 (삭제된) 파일의 문서를 색인에서 삭제한다.
+	 * 탐색이 정상적으로 끝난 뒤에만 호출해야 한다.
+	 * 
+	 * @param writer
+	 * @param stats
+	 * @throws IOException
+	 */
+	public void deleteRemoved(IndexWriter writer, IndexStats stats) throws IOException {
+		deleteRemoved(new IndexShards(writer), stats);
+	}
+
+	/**
+	 * 탐색중에 방문하지 않은 (삭제된) 파일의 문서를 각 파일이 속한 shard 에서 삭제한다.
+	 * 
+	 * @param shards
+	 * @param stats null 이면 세지 않는다.
+	 * @return 삭제한 path
+	 * @throws IOException
+	 */
+	public List<String> deleteRemoved(IndexShards shards, IndexStats stats) throws IOException {
+		List<String> deleted = new ArrayList<>(known.keySet());
+		for (String path : deleted) {
+			System.out.println("deleting " + path);
+			shards.writerFor(path).deleteDocuments(new Term("path", path));
+			if (stats != null) {
+				stats.addDeleted();
+			}
+		}
+		known.clear();
+		return deleted;
+	}
+
+}
@@ -19,27 +19,22 @@ package org.apache.lucene.demo;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.document.Field;
-import org.apache.lucene.document.LongField;
-import org.apache.lucene.document.StringField;
-import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.index.Term;
+import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.Version;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Index all text files under a directory.
@@ -54,13 +49,36 @@ public class IndexFiles {
 	public static void main(String[] args) {
 		
 		String usage = "java org.apache.lucene.demo.IndexFiles"
-				+ " [-index INDEX_PATH] [-docs DOCS_PATH] [-update]\n\n"
+				+ " [-index INDEX_PATH] [-docs DOCS_PATH] [-update] [-incremental] [-threads N] [-shards N [-merge]] [-mmap] [-reuse]\n"
+				+ " [-profile default|bulk|nrt|lowmem]\n"
+				+ " [-commitDocs N] [-commitMB N] [-commitSeconds N] [-resume] [-dedup] [-ioThreads N]\n"
+				+ " [-chunkMB N] [-maxFileMB N] [-maxTokens N] [-watch [-debounceMs N]]\n"
+				+ " [-sortByModified]\n\n"
 				+ "This indexes the documents in DOCS_PATH, creating a Lucene index"
 				+ "in INDEX_PATH that can be searched with SearchFiles";
 		
 		String indexPath = "index";
 		String docsPath = null;
 		boolean create = true;
+		boolean incremental = false;
+		int threads = 0;
+		int numShards = 1;
+		boolean merge = false;
+		boolean mmap = false;
+		boolean reuse = false;
+		IndexProfile profile = IndexProfile.DEFAULT;
+		long commitDocs = 0;
+		long commitMB = 0;
+		long commitSeconds = 0;
+		boolean resume = false;
+		boolean dedup = false;
+		int ioThreads = 0;
+		long chunkMB = 0;
+		long maxFileMB = 0;
+		int maxTokens = 0;
+		boolean watch = false;
+		boolean sortByModified = false;
+		long debounceMs = 1000;
 		
 		for (int i = 0; i < args.length; i++) {
 			if ("-index".equals(args[i])) {
@@ -71,6 +89,75 @@ public class IndexFiles {
 				i++;
 			} else if ("-update".equals(args[i])) {
 				create = false;
+			} else if ("-incremental".equals(args[i])) {
+				create = false;
+				incremental = true;
+			} else if ("-threads".equals(args[i])) {
+				threads = Integer.parseInt(args[i + 1]);
+				if (threads <= 0) {
+					System.err.println("There must be at least 1 indexing thread.");
+					System.exit(1);
+				}
+				i++;
+			} else if ("-shards".equals(args[i])) {
+				numShards = Integer.parseInt(args[i + 1]);
+				if (numShards <= 0) {
+					System.err.println("There must be at least 1 shard.");
+					System.exit(1);
+				}
+				i++;
+			} else if ("-merge".equals(args[i])) {
+				merge = true;
+			} else if ("-mmap".equals(args[i])) {
+				mmap = true;
+			} else if ("-reuse".equals(args[i])) {
+				reuse = true;
+			} else if ("-profile".equals(args[i])) {
+				try {
+					profile = IndexProfile.forName(args[i + 1]);
+				} catch (IllegalArgumentException e) {
+					System.err.println("Unknown profile '" + args[i + 1] + "'.\nUsage: " + usage);
+					System.exit(1);
+				}
+				i++;
+			} else if ("-commitDocs".equals(args[i])) {
+				commitDocs = Long.parseLong(args[i + 1]);
+				i++;
+			} else if ("-commitMB".equals(args[i])) {
+				commitMB = Long.parseLong(args[i + 1]);
+				i++;
+			} else if ("-commitSeconds".equals(args[i])) {
+				commitSeconds = Long.parseLong(args[i + 1]);
+				i++;
+			} else if ("-resume".equals(args[i])) {
+				// 중단된 색인을 이어서 하므로 기존 색인을 지우지 않는다.
+				create = false;
+				resume = true;
+			} else if ("-dedup".equals(args[i])) {
+				dedup = true;
+			} else if ("-ioThreads".equals(args[i])) {
+				ioThreads = Integer.parseInt(args[i + 1]);
+				if (ioThreads <= 0) {
+					System.err.println("There must be at least 1 I/O thread.");
+					System.exit(1);
+				}
+				i++;
+			} else if ("-chunkMB".equals(args[i])) {
+				chunkMB = Long.parseLong(args[i + 1]);
+				i++;
+			} else if ("-maxFileMB".equals(args[i])) {
+				maxFileMB = Long.parseLong(args[i + 1]);
+				i++;
+			} else if ("-maxTokens".equals(args[i])) {
+				maxTokens = Integer.parseInt(args[i + 1]);
+				i++;
+			} else if ("-watch".equals(args[i])) {
+				watch = true;
+			} else if ("-sortByModified".equals(args[i])) {
+				sortByModified = true;
+			} else if ("-debounceMs".equals(args[i])) {
+				debounceMs = Long.parseLong(args[i + 1]);
+				i++;
 			}
 		}
 
@@ -79,6 +166,31 @@ public class IndexFiles {
 			System.exit(1);
 		}
 
+		if (merge && incremental) {
+			System.err.println("-merge rebuilds the index and cannot be combined with -incremental.");
+			System.exit(1);
+		}
+
+		if (resume && incremental) {
+			System.err.println("-incremental already skips files indexed by an interrupted run; do not combine it with -resume.");
+			System.exit(1);
+		}
+
+		if (watch && merge) {
+			System.err.println("-watch keeps the shard writers open and cannot be combined with -merge.");
+			System.exit(1);
+		}
+
+		if (dedup && !create) {
+			System.err.println("-dedup only works when building a new index; do not combine it with -update, -incremental or -resume.");
+			System.exit(1);
+		}
+
+		// 스레드 수를 지정하지 않으면 shard 마다 하나의 색인 스레드를 사용한다.
+		if (threads == 0) {
+			threads = numShards;
+		}
+
 		final File docDir = new File(docsPath);
 		if (!docDir.exists() || !docDir.canRead()) {
 			System.out.println("Document directory '"
@@ -92,37 +204,235 @@ public class IndexFiles {
 			System.out.println("Indexing to directory '" + indexPath + "'...");
 
 			// 디렉토리 오픈
-			Directory dir = FSDirectory.open(new File(indexPath));
+			File indexDir = new File(indexPath);
+			Directory dir = FSDirectory.open(indexDir);
 			
 			// 기본분석기 생성
 			Analyzer analyzer = new StandardAnalyzer(Version.LUCENE_4_10_0);
 			
-			// Writer 환경설정
-			IndexWriterConfig iwc = new IndexWriterConfig(Version.LUCENE_4_10_0, analyzer);
-			if (create) {
-				iwc.setOpenMode(OpenMode.CREATE);
+			// Writer 생성 (shard 가 여러개이면 INDEX_PATH/shardN 마다 Writer 를 하나씩 생성한다)
+			Directory[] shardDirs = new Directory[numShards];
+			IndexWriter[] writers = new IndexWriter[numShards];
+			if (numShards == 1) {
+				shardDirs[0] = dir;
 			} else {
-				iwc.setOpenMode(OpenMode.CREATE_OR_APPEND);
+				for (int i = 0; i < numShards; i++) {
+					shardDirs[i] = FSDirectory.open(IndexShards.shardPath(indexDir, i));
+				}
+			}
+			System.out.println("Using " + profile.describe(numShards));
+
+			// 이전 실행이 중단된 위치를 읽는다.
+			String cursor = null;
+			if (resume) {
+				cursor = Checkpointer.readCursor(shardDirs);
+				System.out.println(cursor == null ? "Nothing to resume, indexing from the beginning"
+						: "Resuming after " + cursor);
 			}
 
-			// Writer 생성
-			IndexWriter writer = new IndexWriter(dir, iwc);
+			for (int i = 0; i < numShards; i++) {
+				IndexWriterConfig iwc = newConfig(analyzer, create, profile, numShards);
+				writers[i] = new IndexWriter(shardDirs[i], sortByModified ? ModifiedSort.apply(iwc) : iwc);
+			}
+			IndexShards shards = new IndexShards(writers);
 			
 			// 색인작업 실행
-			indexDocs(writer, docDir);
+			IndexStats stats = new IndexStats();
+			IncrementalState state = null;
+			if (incremental) {
+				// 기존 색인에서 path → (modified, size) 맵을 한번만 읽는다.
+				IndexReader[] readers = new IndexReader[numShards];
+				for (int i = 0; i < numShards; i++) {
+					readers[i] = DirectoryReader.open(writers[i], false);
+				}
+				IndexReader reader = new MultiReader(readers);
+				try {
+					state = IncrementalState.load(reader);
+				} finally {
+					reader.close();
+				}
+				System.out.println(state.remaining() + " files already indexed");
+			}
+			FileIndexer indexer = new FileIndexer(shards, stats, state);
+			if (mmap) {
+				// 파일을 mmap/direct 버퍼로 읽어서 스레드별 char 버퍼에 바로 디코딩한다.
+				indexer.setContentReader(new FileContentReader());
+			}
+			// 스레드별 Document 를 재사용한다.
+			indexer.setReuseDocuments(reuse);
+			// 큰 파일은 청크 문서로 나누고, 파일당 색인 크기와 토큰 수를 제한한다.
+			indexer.setChunking(chunkMB << 20, maxFileMB << 20).setMaxTokens(maxTokens);
+			// 내용이 같은 파일은 한번만 분석하고 대표 문서에 path 만 추가한다.
+			if (dedup) {
+				indexer.setDeduplicator(new ContentDeduplicator());
+			}
+			// 주기적으로 commit 하고 탐색 위치를 저장한다.
+			Checkpointer checkpointer = null;
+			if (resume || commitDocs > 0 || commitMB > 0 || commitSeconds > 0) {
+				checkpointer = new Checkpointer(shards, cursor, commitDocs, commitMB << 20, commitSeconds);
+				indexer.setCheckpointer(checkpointer);
+			}
+			if (ioThreads > 0) {
+				// 파일 읽기와 분석/색인을 서로 다른 스레드에서 겹쳐서 수행한다.
+				PrefetchPipeline pipeline = new PrefetchPipeline(indexer, ioThreads, threads,
+						threads * 4, FileContentReader.DEFAULT_MMAP_THRESHOLD);
+				pipeline.indexDocs(docDir);
+				System.out.println(pipeline.summary());
+			} else if (threads > 1) {
+				// 디렉토리 탐색 스레드와 N개의 색인 스레드가 Writer를 공유한다.
+				new ParallelIndexer(indexer, threads, threads * 64).indexDocs(docDir);
+			} else {
+				indexDocs(indexer, docDir);
+			}
+
+			// 탐색중에 발견되지 않은 파일은 색인에서 삭제하고,
+			// 삭제되거나 바뀐 파일을 대표로 가리키던 중복 문서는 다시 색인한다.
+			if (state != null) {
+				List<String> changed = new ArrayList<>(state.getModified());
+				changed.addAll(state.deleteRemoved(shards, stats));
+				indexer.reindexDuplicates(changed);
+			}
+
+			// 탐색이 끝났으므로 저장된 위치를 지운다.
+			if (checkpointer != null) {
+				checkpointer.finish();
+			}
+
+			// 감시 모드이면 종료될때까지 파일 변경을 색인에 반영한다.
+			if (watch) {
+				Date initialEnd = new Date();
+				System.out.println(stats.summary(initialEnd.getTime() - start.getTime()));
+				shards.commit();
+
+				FileIndexer updater = new FileIndexer(shards, stats, null)
+						.setAlwaysUpdate(true)
+						.setReuseDocuments(reuse)
+						.setChunking(chunkMB << 20, maxFileMB << 20)
+						.setMaxTokens(maxTokens);
+				if (mmap) {
+					updater.setContentReader(new FileContentReader());
+				}
+				watch(new IndexWatcher(updater, shards, docDir, debounceMs));
+			}
 
 			// Writer 종료
-			writer.close();
+			shards.close();
+
+			// shard 들을 하나의 색인으로 병합한다.
+			if (numShards > 1 && merge) {
+				System.out.println("Merging " + numShards + " shards into '" + indexPath + "'...");
+				IndexWriterConfig iwc = newConfig(analyzer, true, profile, 1);
+				mergeShards(dir, shardDirs, sortByModified ? ModifiedSort.apply(iwc) : iwc);
+				for (int i = 0; i < numShards; i++) {
+					deleteShard(shardDirs[i], IndexShards.shardPath(indexDir, i));
+				}
+			}
 
 			Date end = new Date();
 			System.out.println(end.getTime() - start.getTime() + " total milliseconds");
+			System.out.println(stats.summary(end.getTime() - start.getTime()));
 
 		} catch (IOException e) {
 			System.out.println(" caught a " + e.getClass() + "\n with message: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.out.println(" indexing interrupted");
 		}
 	}
 
 
+	/**
+	 * 프로세스가 종료될때까지 파일 변경을 감시한다.
+	 * 종료 신호를 받으면 남은 변경을 반영하고 반환한다.
+	 * 
+	 * @param watcher
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void watch(final IndexWatcher watcher) throws IOException, InterruptedException {
+		final Thread mainThread = Thread.currentThread();
+		Runtime.getRuntime().addShutdownHook(new Thread("IndexFiles shutdown") {
+			@Override
+			public void run() {
+				try {
+					watcher.close();
+					// Writer 가 닫힐때까지 기다린다.
+					mainThread.join();
+				} catch (IOException | InterruptedException e) {
+					System.out.println(" caught a " + e.getClass() + "\n with message: " + e.getMessage());
+				}
+			}
+		});
+		System.out.println("Watching for changes, press Ctrl-C to stop...");
+		watcher.run();
+	}
+
+
+	/**
+	 * Writer 환경설정을 생성한다.
+	 * IndexWriterConfig 는 Writer 사이에 공유할 수 없으므로 Writer 마다 새로 생성한다.
+	 * 
+	 * @param analyzer
+	 * @param create
+	 * @return
+	 */
+	static IndexWriterConfig newConfig(Analyzer analyzer, boolean create) {
+		return newConfig(analyzer, create, IndexProfile.DEFAULT, 1);
+	}
+
+
+	/**
+	 * 색인 profile 을 적용한 Writer 환경설정을 생성한다.
+	 * 
+	 * @param analyzer
+	 * @param create
+	 * @param profile 색인 profile
+	 * @param numWriters 동시에 사용하는 Writer 수
+	 * @return
+	 */
+	@SuppressWarnings("deprecation")
+	static IndexWriterConfig newConfig(Analyzer analyzer, boolean create, IndexProfile profile, int numWriters) {
+		IndexWriterConfig iwc = new IndexWriterConfig(Version.LUCENE_4_10_0, analyzer);
+		if (create) {
+			iwc.setOpenMode(OpenMode.CREATE);
+		} else {
+			iwc.setOpenMode(OpenMode.CREATE_OR_APPEND);
+		}
+		return profile.apply(iwc, numWriters);
+	}
+
+
+	/**
+	 * shard 색인들을 addIndexes 로 하나의 색인에 합치고 하나의 segment 로 최적화한다.
+	 * 
+	 * @param target 병합된 색인이 저장될 디렉토리
+	 * @param shardDirs shard 디렉토리
+	 * @param iwc 병합에 사용할 Writer 환경설정
+	 * @throws IOException
+	 */
+	static void mergeShards(Directory target, Directory[] shardDirs, IndexWriterConfig iwc) throws IOException {
+		IndexWriter writer = new IndexWriter(target, iwc);
+		try {
+			writer.addIndexes(shardDirs);
+			writer.forceMerge(1);
+		} finally {
+			writer.close();
+		}
+	}
+
+
+	/**
+	 * 병합이 끝난 shard 디렉토리를 삭제한다.
+	 */
+	private static void deleteShard(Directory shardDir, File path) throws IOException {
+		for (String file : shardDir.listAll()) {
+			shardDir.deleteFile(file);
+		}
+		shardDir.close();
+		path.delete();
+	}
+
+
 	/**
 	 * 색인작업을 수행한다.
 	 * 
@@ -131,18 +441,32 @@ public class IndexFiles {
 	 * @throws IOException
 	 */
 	static void indexDocs(IndexWriter writer, File file) throws IOException {
-		if (!file.canRead()) {
+		indexDocs(new FileIndexer(writer, new IndexStats()), file);
+	}
+
+
+	/**
+	 * 현재 스레드에서 색인작업을 수행한다.
+	 * 
+	 * @param indexer
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void indexDocs(FileIndexer indexer, File file) throws IOException {
+		if (!file.canRead() || !indexer.accept(file)) {
 			return;
 		}
 		
 		if (file.isDirectory()) {
 			/**
 			 * 디렉토리일 경우 파일이 나타날때까지 Recursive로 처리한다.
+			 * 이름순으로 탐색하여 실행할때마다 순서가 같도록 한다.
 			 */
 			String[] files = file.list();
 			if (files != null) {
+				Arrays.sort(files);
 				for (int i = 0; i < files.length; i++) {
-					indexDocs(writer, new File(file, files[i]));
+					indexDocs(indexer, new File(file, files[i]));
 				}
 			}
 			
@@ -150,40 +474,8 @@ public class IndexFiles {
 			/**
 			 * 파일을 읽어서 색인을 생성한다.
 			 */
-			FileInputStream fis;
-			try {
-				fis = new FileInputStream(file);
-			} catch (FileNotFoundException fnfe) {
-				return;
-			}
-
-			try {
-				// Document 객체 생성
-				Document doc = new Document();
-
-				doc.add(new StringField("path", file.getPath(), Field.Store.YES));
-				doc.add(new LongField("modified", file.lastModified(), Field.Store.NO));
-				doc.add(new TextField("contents", new BufferedReader(new InputStreamReader(fis, StandardCharsets.UTF_8))));
-
-				if (writer.getConfig().getOpenMode() == OpenMode.CREATE) {
-					System.out.println("adding " + file);
-					writer.addDocument(doc);
-				} else {
-					System.out.println("updating " + file);
-					writer.updateDocument(new Term("path", file.getPath()), doc);
-				}
-
-			} finally {
-				fis.close();
-			}
+			indexer.indexFile(file);
 		}
 	}
 	
-	
-	
-	
-	
 }
-
-
-
@@ -0,0 +1,142 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Locale;
+
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.TieredMergePolicy;
+
+/**
+ * 색인 용도별 {@link IndexWriterConfig} 설정 묶음.
+ * <p>
+ * RAM 버퍼 크기, flush 문서 수, {@link TieredMergePolicy} segment 크기,
+ * {@link ConcurrentMergeScheduler} 스레드 수, compound file 사용 여부를 한번에 설정한다.
+ */
+public enum IndexProfile {
+
+	/** Lucene 기본 설정 (전체 16MB RAM 버퍼, 기본 merge 설정) */
+	DEFAULT(IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB, IndexWriterConfig.DISABLE_AUTO_FLUSH,
+			5 * 1024, 10, 2, 0, 0, true),
+
+	/** 대량 색인: 큰 RAM 버퍼, 큰 segment, merge 스레드 최대, compound file 미사용 */
+	BULK(512, IndexWriterConfig.DISABLE_AUTO_FLUSH,
+			5 * 1024, 20, 64, Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)), 6, false),
+
+	/** 근실시간 색인: 작은 segment 를 자주 flush 하고 merge 는 가볍게 유지한다. */
+	NRT(32, IndexWriterConfig.DISABLE_AUTO_FLUSH,
+			1024, 10, 2, 1, 6, true),
+
+	/** 메모리 절약: 작은 RAM 버퍼와 문서 수 기준 flush, merge 스레드 1개 */
+	LOWMEM(8, 1000,
+			512, 10, 2, 1, 2, true);
+
+	private final double ramBufferSizeMB;
+	private final int maxBufferedDocs;
+	private final double maxMergedSegmentMB;
+	private final double segmentsPerTier;
+	private final double floorSegmentMB;
+	private final int mergeThreads;
+	private final int maxMergeCount;
+	private final boolean useCompoundFile;
+
+	/**
+	 * @param mergeThreads 0 이면 ConcurrentMergeScheduler 기본값을 사용한다.
+	 * @param maxMergeCount 0 이면 ConcurrentMergeScheduler 기본값을 사용한다.
+	 */
+	private IndexProfile(double ramBufferSizeMB, int maxBufferedDocs,
+			double maxMergedSegmentMB, double segmentsPerTier, double floorSegmentMB,
+			int mergeThreads, int maxMergeCount, boolean useCompoundFile) {
+		this.ramBufferSizeMB = ramBufferSizeMB;
+		this.maxBufferedDocs = maxBufferedDocs;
+		this.maxMergedSegmentMB = maxMergedSegmentMB;
+		this.segmentsPerTier = segmentsPerTier;
+		this.floorSegmentMB = floorSegmentMB;
+		this.mergeThreads = mergeThreads;
+		this.maxMergeCount = Math.max(maxMergeCount, mergeThreads);
+		this.useCompoundFile = useCompoundFile;
+	}
+
+	/**
+	 * 이름으로 profile 을 찾는다. (대소문자 무시)
+	 * 
+	 * @param name bulk, nrt, lowmem, default
+	 * @return profile
+	 * @throws IllegalArgumentException 없는 이름인 경우
+	 */
+	public static IndexProfile forName(String name) {
+		return valueOf(name.toUpperCase(Locale.ROOT));
+	}
+
+	/**
+	 * Writer 환경설정에 profile 을 적용한다.
+	 * 여러 Writer 가 동시에 색인하는 경우 RAM 버퍼와 merge 스레드를 Writer 수로 나눈다.
+	 * 
+	 * @param iwc Writer 환경설정
+	 * @param numWriters 동시에 사용하는 Writer 수
+	 * @return iwc
+	 */
+	public IndexWriterConfig apply(IndexWriterConfig iwc, int numWriters) {
+		iwc.setRAMBufferSizeMB(getRAMBufferSizeMB(numWriters));
+		iwc.setMaxBufferedDocs(maxBufferedDocs);
+		iwc.setUseCompoundFile(useCompoundFile);
+
+		TieredMergePolicy mergePolicy = new TieredMergePolicy();
+		mergePolicy.setMaxMergedSegmentMB(maxMergedSegmentMB);
+		mergePolicy.setSegmentsPerTier(segmentsPerTier);
+		mergePolicy.setMaxMergeAtOnce((int) segmentsPerTier);
+		mergePolicy.setFloorSegmentMB(floorSegmentMB);
+		mergePolicy.setNoCFSRatio(useCompoundFile ? TieredMergePolicy.DEFAULT_NO_CFS_RATIO : 0.0);
+		iwc.setMergePolicy(mergePolicy);
+
+		ConcurrentMergeScheduler mergeScheduler = new ConcurrentMergeScheduler();
+		if (mergeThreads > 0) {
+			int threads = Math.max(1, mergeThreads / numWriters);
+			mergeScheduler.setMaxMergesAndThreads(Math.max(maxMergeCount / numWriters, threads), threads);
+		}
+		iwc.setMergeScheduler(mergeScheduler);
+		return iwc;
+	}
+
+	/**
+	 * 모든 profile 의 RAM 버퍼는 프로세스 전체의 예산이므로 Writer 수로 나눈다.
+	 */
+	private double getRAMBufferSizeMB(int numWriters) {
+		return Math.max(1.0, ramBufferSizeMB / numWriters);
+	}
+
+	/**
+	 * 실제로 적용되는 설정을 로그용 문자열로 반환한다.
+	 * 
+	 * @param numWriters 동시에 사용하는 Writer 수
+	 * @return 설정 요약
+	 */
+	public String describe(int numWriters) {
+		ConcurrentMergeScheduler defaults = new ConcurrentMergeScheduler();
+		int threads = mergeThreads > 0 ? Math.max(1, mergeThreads / numWriters) : defaults.getMaxThreadCount();
+		int merges = mergeThreads > 0 ? Math.max(maxMergeCount / numWriters, threads) : defaults.getMaxMergeCount();
+		return String.format(Locale.ROOT,
+				"profile=%s writers=%d ramBufferMB=%.1f maxBufferedDocs=%s maxMergedSegmentMB=%.0f"
+						+ " segmentsPerTier=%.0f floorSegmentMB=%.0f mergeThreads=%d maxMergeCount=%d compoundFile=%s",
+				name().toLowerCase(Locale.ROOT), numWriters, getRAMBufferSizeMB(numWriters),
+				maxBufferedDocs == IndexWriterConfig.DISABLE_AUTO_FLUSH ? "disabled" : String.valueOf(maxBufferedDocs),
+				maxMergedSegmentMB, segmentsPerTier, floorSegmentMB, threads, merges, useCompoundFile);
+	}
+
+}
@@ -0,0 +1,94 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.util.IOUtils;
+
+/**
+ * path 의 hash 값으로 문서를 N개의 {@link IndexWriter} 에 나누어 색인한다.
+ * <p>
+ * 같은 path 는 항상 같은 shard 로 가므로 update/delete 도 해당 shard 에서만 일어난다.
+ * shard 가 하나이면 일반적인 단일 색인과 같다.
+ */
+public class IndexShards implements Closeable {
+
+	private final IndexWriter[] writers;
+
+	public IndexShards(IndexWriter... writers) {
+		if (writers.length == 0) {
+			throw new IllegalArgumentException("at least one shard is required");
+		}
+		this.writers = writers;
+	}
+
+	/**
+	 * path 가 속하는 shard 번호를 구한다.
+	 * 
+	 * @param path 문서의 path
+	 * @param numShards 전체 shard 수
+	 * @return 0 ~ numShards-1
+	 */
+	public static int shardFor(String path, int numShards) {
+		return (path.hashCode() & Integer.MAX_VALUE) % numShards;
+	}
+
+	/**
+	 * shard 색인이 저장되는 디렉토리. (INDEX_PATH/shardN)
+	 * 
+	 * @param indexPath 색인 디렉토리
+	 * @param shard shard 번호
+	 * @return shard 디렉토리
+	 */
+	public static File shardPath(File indexPath, int shard) {
+		return new File(indexPath, "shard" + shard);
+	}
+
+	/** shard 수 */
+	public int size() {
+		return writers.length;
+	}
+
+	/** shard 번호에 해당하는 Writer */
+	public IndexWriter get(int shard) {
+		return writers[shard];
+	}
+
+	/** path 가 속하는 shard 의 Writer */
+	public IndexWriter writerFor(String path) {
+		return writers[shardFor(path, writers.length)];
+	}
+
+	/** 모든 shard 를 commit 한다. */
+	public void commit() throws IOException {
+		for (IndexWriter writer : writers) {
+			writer.commit();
+		}
+	}
+
+	/** 모든 shard 의 Writer 를 종료한다. */
+	@Override
+	public void close() throws IOException {
+		IOUtils.close(writers);
+	}
+
+}
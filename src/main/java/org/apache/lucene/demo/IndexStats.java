@@ -0,0 +1,106 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 색인 작업의 처리량(문서 건수, 바이트)을 집계한다.
+ * <p>
+ * 여러 색인 스레드가 동시에 갱신하므로 모든 카운터는 thread-safe 하다.
+ */
+public class IndexStats {
+
+	private final AtomicLong docs = new AtomicLong();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+	private final AtomicLong deleted = new AtomicLong();
+	private final AtomicLong duplicates = new AtomicLong();
+
+	/**
+	 * 색인된 파일 하나를 기록한다.
+	 * 
+	 * @param length 파일 크기(byte)
+	 */
+	public void addFile(long length) {
+		docs.incrementAndGet();
+		bytes.addAndGet(length);
+	}
+
+	/** 변경되지 않아 건너뛴 파일 하나를 기록한다. */
+	public void addSkipped() {
+		skipped.incrementAndGet();
+	}
+
+	/** 색인에서 삭제된 파일 하나를 기록한다. */
+	public void addDeleted() {
+		deleted.incrementAndGet();
+	}
+
+	/** 내용이 같은 파일이 이미 색인되어 분석하지 않은 파일 하나를 기록한다. */
+	public void addDuplicate() {
+		duplicates.incrementAndGet();
+	}
+
+	/** 색인된 문서 건수 */
+	public long getDocs() {
+		return docs.get();
+	}
+
+	/** 색인된 바이트 수 */
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/** 변경되지 않아 건너뛴 파일 수 */
+	public long getSkipped() {
+		return skipped.get();
+	}
+
+	/** 삭제된 파일 수 */
+	public long getDeleted() {
+		return deleted.get();
+	}
+
+	/** 중복 파일 수 */
+	public long getDuplicates() {
+		return duplicates.get();
+	}
+
+	/**
+	 * 경과 시간을 기준으로 docs/sec, MB/sec 를 계산한 요약 문자열을 반환한다.
+	 * 
+	 * @param elapsedMillis 경과 시간(ms)
+	 * @return 요약 문자열
+	 */
+	public String summary(long elapsedMillis) {
+		double seconds = Math.max(elapsedMillis, 1) / 1000.0;
+		double mb = getBytes() / (1024.0 * 1024.0);
+		String summary = String.format(Locale.ROOT, "%d docs, %.1f MB in %d ms (%.1f docs/sec, %.2f MB/sec)",
+				getDocs(), mb, elapsedMillis, getDocs() / seconds, mb / seconds);
+		if (getSkipped() > 0 || getDeleted() > 0) {
+			summary += ", " + getSkipped() + " unchanged, " + getDeleted() + " deleted";
+		}
+		if (getDuplicates() > 0) {
+			summary += ", " + getDuplicates() + " duplicates";
+		}
+		return summary;
+	}
+
+}
@@ -0,0 +1,276 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.PrefixQuery;
+
+/**
+ * {@link WatchService} 로 문서 디렉토리의 생성/수정/삭제 이벤트를 받아서 색인에 반영하는 데몬.
+ * <p>
+ * 디렉토리 트리 전체를 다시 탐색하지 않고, debounce 시간 동안 모인 이벤트를 path 별로 합쳐서
+ * 한번에 updateDocument/deleteDocuments 로 반영한 뒤 commit 한다.
+ * 이벤트가 유실(OVERFLOW)된 디렉토리만 다시 탐색한다.
+ */
+public class IndexWatcher implements Closeable {
+
+	/** path 별로 합쳐진 변경 종류 */
+	enum Change {
+		/** 생성 또는 수정 */
+		UPDATE,
+		/** 삭제 */
+		DELETE,
+		/** 이벤트가 유실된 디렉토리. 다시 탐색한다. */
+		RESCAN
+	}
+
+	private final FileIndexer indexer;
+	private final IndexShards shards;
+	private final long debounceMillis;
+	private final WatchService watchService;
+	private final Map<WatchKey, Path> keys = new HashMap<>();
+
+	/**
+	 * @param indexer 변경된 파일을 색인할 색인기. 기존 문서를 대체하도록 설정되어 있어야 한다.
+	 * @param shards 삭제와 commit 을 수행할 Writer 들
+	 * @param root 감시할 문서 디렉토리
+	 * @param debounceMillis 이벤트를 모아서 반영하는 주기 (ms)
+	 * @throws IOException
+	 */
+	public IndexWatcher(FileIndexer indexer, IndexShards shards, File root, long debounceMillis) throws IOException {
+		this.indexer = indexer;
+		this.shards = shards;
+		this.debounceMillis = debounceMillis;
+		this.watchService = FileSystems.getDefault().newWatchService();
+		registerAll(root.toPath());
+	}
+
+	/**
+	 * 디렉토리와 모든 하위 디렉토리를 감시 대상으로 등록한다.
+	 */
+	private void registerAll(Path start) throws IOException {
+		Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+				keys.put(key, dir);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException exc) {
+				// 읽을 수 없는 디렉토리는 색인할때와 마찬가지로 건너뛴다.
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * {@link #close()} 가 호출될때까지 이벤트를 받아서 색인에 반영한다.
+	 * 
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void run() throws IOException, InterruptedException {
+		Map<Path, Change> pending = new LinkedHashMap<>();
+		long deadline = 0;
+		try {
+			while (true) {
+				WatchKey key;
+				if (pending.isEmpty()) {
+					key = watchService.take();
+					deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+				} else {
+					key = watchService.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				}
+
+				if (key != null) {
+					collect(key, pending);
+				}
+
+				// debounce 시간이 지나면 모인 변경을 한번에 반영한다.
+				if (!pending.isEmpty() && System.nanoTime() - deadline >= 0) {
+					apply(pending);
+					pending.clear();
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			// close() 로 종료되었다. 아직 반영하지 않은 변경을 반영한다.
+			if (!pending.isEmpty()) {
+				apply(pending);
+			}
+		}
+	}
+
+	/**
+	 * 이벤트를 path 별로 합친다. 같은 path 의 마지막 이벤트가 남는다.
+	 */
+	private void collect(WatchKey key, Map<Path, Change> pending) {
+		Path dir = keys.get(key);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (dir == null) {
+				continue;
+			}
+			if (event.kind() == OVERFLOW) {
+				pending.put(dir, Change.RESCAN);
+				continue;
+			}
+			Path child = dir.resolve((Path) event.context());
+			pending.remove(child);
+			pending.put(child, event.kind() == ENTRY_DELETE ? Change.DELETE : Change.UPDATE);
+		}
+		if (!key.reset()) {
+			// 디렉토리가 삭제되었다.
+			keys.remove(key);
+		}
+	}
+
+	/**
+	 * 모인 변경을 색인에 반영하고 commit 한다.
+	 */
+	void apply(Map<Path, Change> pending) throws IOException {
+		long start = System.nanoTime();
+		int updated = 0;
+		int deleted = 0;
+		// 삭제되었거나 바뀐 path. 이 path 를 대표로 가리키던 중복 문서는 다시 색인한다.
+		List<String> changed = new ArrayList<>();
+		for (Map.Entry<Path, Change> entry : pending.entrySet()) {
+			File file = entry.getKey().toFile();
+			if (entry.getValue() == Change.DELETE || !file.exists()) {
+				delete(file.getPath());
+				changed.add(file.getPath());
+				deleted++;
+			} else if (entry.getValue() == Change.RESCAN) {
+				deleted += rescan(entry.getKey(), changed);
+				updated++;
+			} else if (file.isDirectory()) {
+				// 새로 생긴 디렉토리는 감시 대상에 추가하고 안에 있는 파일을 색인한다.
+				if (!keys.containsValue(entry.getKey())) {
+					registerAll(entry.getKey());
+					IndexFiles.indexDocs(indexer, file);
+					updated++;
+				}
+			} else {
+				indexer.indexFile(file);
+				changed.add(file.getPath());
+				updated++;
+			}
+		}
+		updated += indexer.reindexDuplicates(changed);
+		shards.commit();
+		System.out.println("applied " + updated + " updates, " + deleted + " deletes in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+	}
+
+	/**
+	 * 이벤트가 유실된 디렉토리를 다시 탐색한다.
+	 * 색인에 있는 이 디렉토리 아래의 path 를 증분 색인처럼 비교해서 바뀐 파일만 다시 색인하고,
+	 * 탐색중에 발견되지 않은 path 는 색인에서 삭제한다.
+	 * 
+	 * @param changed 삭제되었거나 바뀐 path 를 추가한다.
+	 * @return 삭제한 path 의 수
+	 */
+	private int rescan(Path dir, List<String> changed) throws IOException {
+		// 유실된 이벤트 중에 생긴 하위 디렉토리도 감시 대상에 추가한다.
+		registerAll(dir);
+
+		IndexReader[] readers = new IndexReader[shards.size()];
+		for (int i = 0; i < readers.length; i++) {
+			readers[i] = DirectoryReader.open(shards.get(i), true);
+		}
+		IncrementalState state;
+		IndexReader reader = new MultiReader(readers);
+		try {
+			state = IncrementalState.load(reader, dir.toString() + File.separator);
+		} finally {
+			reader.close();
+		}
+		rescan(dir.toFile(), state);
+		changed.addAll(state.getModified());
+		List<String> deleted = state.deleteRemoved(shards, null);
+		changed.addAll(deleted);
+		return deleted.size();
+	}
+
+	private void rescan(File file, IncrementalState state) throws IOException {
+		if (!file.canRead()) {
+			return;
+		}
+		if (file.isDirectory()) {
+			String[] files = file.list();
+			if (files != null) {
+				Arrays.sort(files);
+				for (int i = 0; i < files.length; i++) {
+					rescan(new File(file, files[i]), state);
+				}
+			}
+		} else if (state.visit(file) != IncrementalState.Change.UNCHANGED) {
+			indexer.indexFile(file);
+		}
+	}
+
+	/**
+	 * 삭제된 파일의 문서와, 삭제된 것이 디렉토리였다면 그 아래의 모든 문서를 삭제한다.
+	 */
+	private void delete(String path) throws IOException {
+		System.out.println("deleting " + path);
+		shards.writerFor(path).deleteDocuments(new Term("path", path));
+		PrefixQuery children = new PrefixQuery(new Term("path", path + File.separator));
+		for (int i = 0; i < shards.size(); i++) {
+			shards.get(i).deleteDocuments(children);
+		}
+	}
+
+	/**
+	 * 감시를 멈춘다. {@link #run()} 은 남은 변경을 반영한 뒤 반환한다.
+	 */
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+
+}
@@ -0,0 +1,130 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 응답시간(ns)의 분포를 기록하는 히스토그램.
+ * <p>
+ * 2의 거듭제곱 구간마다 16개의 bucket 을 두므로 값의 오차는 약 6% 이내이고,
+ * 기록 건수와 관계없이 메모리 사용량은 일정하다.
+ * thread-safe 하지 않으므로 스레드마다 하나씩 사용하고 {@link #add(LatencyHistogram)} 로 합친다.
+ */
+public class LatencyHistogram {
+
+	/** 2의 거듭제곱 구간 하나를 나누는 bucket 수의 log2 */
+	private static final int SUB_BITS = 4;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int NUM_BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+	private final long[] counts = new long[NUM_BUCKETS];
+	private long count;
+	private long total;
+	private long max;
+
+	/** 값이 속하는 bucket 을 구한다. */
+	static int bucket(long value) {
+		if (value < SUB_COUNT) {
+			return (int) Math.max(0, value);
+		}
+		int exp = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+		return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+
+	/** bucket 에 속하는 가장 큰 값을 구한다. */
+	static long highestValue(int bucket) {
+		if (bucket < SUB_COUNT) {
+			return bucket;
+		}
+		int exp = bucket / SUB_COUNT + SUB_BITS - 1;
+		int sub = bucket % SUB_COUNT;
+		long lowest = (long) (SUB_COUNT + sub) << (exp - SUB_BITS);
+		return lowest + (1L << (exp - SUB_BITS)) - 1;
+	}
+
+	/**
+	 * 응답시간 하나를 기록한다.
+	 * 
+	 * @param nanos 응답시간(ns)
+	 */
+	public void record(long nanos) {
+		counts[bucket(nanos)]++;
+		count++;
+		total += nanos;
+		max = Math.max(max, nanos);
+	}
+
+	/**
+	 * 다른 히스토그램의 기록을 합친다.
+	 * 
+	 * @param other
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		total += other.total;
+		max = Math.max(max, other.max);
+	}
+
+	/** 기록된 건수 */
+	public long getCount() {
+		return count;
+	}
+
+	/** 가장 긴 응답시간(ns) */
+	public long getMax() {
+		return max;
+	}
+
+	/** 평균 응답시간(ns) */
+	public double getMean() {
+		return count == 0 ? 0 : (double) total / count;
+	}
+
+	/**
+	 * 기록된 값의 percentile 을 구한다.
+	 * 
+	 * @param percentile 0 ~ 100
+	 * @return 기록된 값 중 percentile 비율 이상이 이 값 이하인 가장 작은 bucket 의 상한(ns).
+	 *         기록이 없으면 0.
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return Math.min(highestValue(i), max);
+			}
+		}
+		return max;
+	}
+
+	/** ns 를 ms 로 변환한다. */
+	static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+}
@@ -0,0 +1,79 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.sorter.EarlyTerminatingSortingCollector;
+import org.apache.lucene.index.sorter.SortingMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+
+/**
+ * 수정일(modified) 역순, 즉 최신 파일부터 정렬하는 색인과 검색.
+ * <p>
+ * 색인할때 {@link SortingMergePolicy} 를 사용하면 병합된 세그먼트의 문서가 modified 역순으로 저장된다.
+ * 검색할때 {@link EarlyTerminatingSortingCollector} 는 정렬된 세그먼트에서 상위 N 건을 모으면
+ * 그 세그먼트의 나머지 문서를 건너뛰므로, 일치하는 문서가 많아도 응답시간이 거의 일정하다.
+ * flush 된 세그먼트는 병합되기 전까지 정렬되어 있지 않으므로 모든 문서를 수집한다.
+ */
+public final class ModifiedSort {
+
+	/** FileIndexer 가 NumericDocValuesField 로 저장하는 수정일 필드 */
+	public static final String FIELD = "modified";
+
+	/** 최신 파일 순서 */
+	public static final Sort NEWEST_FIRST = new Sort(new SortField(FIELD, SortField.Type.LONG, true));
+
+	private ModifiedSort() {
+	}
+
+	/**
+	 * 병합된 세그먼트가 최신 파일 순서로 정렬되도록 Writer 환경설정의 병합 정책을 감싼다.
+	 * 
+	 * @param iwc
+	 * @return iwc
+	 */
+	public static IndexWriterConfig apply(IndexWriterConfig iwc) {
+		iwc.setMergePolicy(new SortingMergePolicy(iwc.getMergePolicy(), NEWEST_FIRST));
+		return iwc;
+	}
+
+	/**
+	 * 최신 파일 순서로 상위 n 건을 조회한다.
+	 * <p>
+	 * 정렬된 세그먼트에서 수집을 일찍 멈추므로 결과의 totalHits 는 실제 일치 건수보다 작을 수 있다.
+	 * 
+	 * @param searcher
+	 * @param query
+	 * @param n
+	 * @return FieldDoc 결과. score 는 계산하지 않는다.
+	 * @throws IOException
+	 */
+	public static TopDocs search(IndexSearcher searcher, Query query, int n) throws IOException {
+		TopFieldCollector top = TopFieldCollector.create(NEWEST_FIRST, n, true, false, false, true);
+		searcher.search(query, new EarlyTerminatingSortingCollector(top, NEWEST_FIRST, n));
+		return top.topDocs();
+	}
+
+}
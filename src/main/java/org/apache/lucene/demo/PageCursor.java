@@ -0,0 +1,132 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+
+/**
+ * 검색 결과의 한 페이지를 가리키는 cursor.
+ * <p>
+ * 이전 페이지의 마지막 결과를 기억해서 {@link IndexSearcher#searchAfter} 로 다음 페이지를 조회하므로
+ * 페이지가 얼마나 깊든지 페이지당 hitsPerPage 크기의 queue 만 사용한다.
+ * {@link #toToken()} 으로 페이지 번호, docID, score 를 16 문자의 문자열로 만들 수 있다.
+ * docID 를 사용하므로 token 은 같은 IndexReader 에서만 유효하다.
+ */
+public final class PageCursor {
+
+	/** 첫번째 페이지 */
+	public static final PageCursor FIRST = new PageCursor(0, null);
+
+	private final int page;
+	private final ScoreDoc after;
+
+	/**
+	 * @param page 페이지 번호 (0 부터)
+	 * @param after 이전 페이지의 마지막 결과. 첫번째 페이지이면 null
+	 */
+	public PageCursor(int page, ScoreDoc after) {
+		if (page < 0 || (page == 0) != (after == null)) {
+			throw new IllegalArgumentException("invalid cursor: page=" + page + ", after=" + after);
+		}
+		this.page = page;
+		this.after = after;
+	}
+
+	/** 페이지 번호 (0 부터) */
+	public int getPage() {
+		return page;
+	}
+
+	/** 이전 페이지의 마지막 결과 */
+	public ScoreDoc getAfter() {
+		return after;
+	}
+
+	/**
+	 * cursor 가 가리키는 페이지를 조회한다.
+	 * 
+	 * @param searcher
+	 * @param query
+	 * @param hitsPerPage
+	 * @return 한 페이지의 결과. totalHits 는 전체 결과 건수이다.
+	 * @throws IOException
+	 */
+	public TopDocs search(IndexSearcher searcher, Query query, int hitsPerPage) throws IOException {
+		return after == null ? searcher.search(query, hitsPerPage) : searcher.searchAfter(after, query, hitsPerPage);
+	}
+
+	/**
+	 * 다음 페이지의 cursor 를 만든다.
+	 * 
+	 * @param results 이 cursor 로 조회한 결과
+	 * @return 다음 페이지의 cursor. 결과가 없으면 null
+	 */
+	public PageCursor next(TopDocs results) {
+		ScoreDoc[] hits = results.scoreDocs;
+		if (hits.length == 0) {
+			return null;
+		}
+		ScoreDoc last = hits[hits.length - 1];
+		return new PageCursor(page + 1, new ScoreDoc(last.doc, last.score));
+	}
+
+	/**
+	 * cursor 를 URL 에 그대로 넣을 수 있는 문자열로 만든다.
+	 * 
+	 * @return
+	 */
+	public String toToken() {
+		ByteBuffer buffer = ByteBuffer.allocate(12);
+		buffer.putInt(page);
+		buffer.putInt(after == null ? -1 : after.doc);
+		buffer.putFloat(after == null ? Float.NaN : after.score);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+	}
+
+	/**
+	 * {@link #toToken()} 으로 만든 문자열을 cursor 로 변환한다.
+	 * 
+	 * @param token
+	 * @return
+	 * @throws IllegalArgumentException token 형식이 잘못된 경우
+	 */
+	public static PageCursor parse(String token) {
+		byte[] bytes = Base64.getUrlDecoder().decode(token);
+		if (bytes.length != 12) {
+			throw new IllegalArgumentException("invalid cursor token: " + token);
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		int page = buffer.getInt();
+		int doc = buffer.getInt();
+		float score = buffer.getFloat();
+		return page == 0 ? FIRST : new PageCursor(page, new ScoreDoc(doc, score));
+	}
+
+	@Override
+	public String toString() {
+		return "PageCursor(page=" + page + ", after=" + after + ")";
+	}
+
+}
@@ -0,0 +1,161 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 디렉토리를 탐색하는 생산자 스레드와 N개의 색인 스레드로 구성된 병렬 색인기.
+ * <p>
+ * 호출한 스레드가 디렉토리 트리를 탐색하면서 파일을 bounded queue 에 넣고,
+ * 색인 스레드들은 queue 에서 파일을 꺼내 공유된 {@link FileIndexer} 로 색인한다.
+ * queue 가 가득 차면 탐색이 멈추므로 메모리 사용량은 queue 크기로 제한된다.
+ */
+public class ParallelIndexer {
+
+	/** 색인 스레드 종료 신호 */
+	private static final File END = new File("");
+
+	private final FileIndexer indexer;
+	private final int numThreads;
+	private final int queueSize;
+
+	/**
+	 * @param indexer 색인 스레드들이 공유하는 색인기
+	 * @param numThreads 색인 스레드 수
+	 * @param queueSize 탐색기와 색인 스레드 사이 queue 의 크기
+	 */
+	public ParallelIndexer(FileIndexer indexer, int numThreads, int queueSize) {
+		if (numThreads <= 0) {
+			throw new IllegalArgumentException("numThreads must be > 0 (got " + numThreads + ")");
+		}
+		if (queueSize <= 0) {
+			throw new IllegalArgumentException("queueSize must be > 0 (got " + queueSize + ")");
+		}
+		this.indexer = indexer;
+		this.numThreads = numThreads;
+		this.queueSize = queueSize;
+	}
+
+	/**
+	 * 디렉토리 트리 전체를 병렬로 색인한다.
+	 * 모든 색인 스레드가 끝날때까지 반환하지 않는다.
+	 * 
+	 * @param root 색인할 파일 또는 디렉토리
+	 * @throws IOException 색인 스레드에서 발생한 첫번째 오류 (unchecked 예외는 그대로 던진다)
+	 * @throws InterruptedException
+	 */
+	public void indexDocs(File root) throws IOException, InterruptedException {
+		final BlockingQueue<File> queue = new ArrayBlockingQueue<>(queueSize);
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		// 색인 스레드 생성
+		Thread[] workers = new Thread[numThreads];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Thread("IndexFiles worker " + i) {
+				@Override
+				public void run() {
+					try {
+						File file;
+						while ((file = queue.take()) != END) {
+							// 오류가 발생한 뒤에도 탐색기가 막히지 않도록 queue 는 계속 비운다.
+							if (failure.get() != null) {
+								continue;
+							}
+							// 분석기의 RuntimeException 등으로 스레드가 죽으면 queue 가 비워지지 않아 탐색기가 멈추므로 모든 오류를 기록한다.
+							try {
+								indexer.indexFile(file);
+							} catch (Throwable t) {
+								failure.compareAndSet(null, t);
+							}
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+			workers[i].start();
+		}
+
+		// 디렉토리 탐색 (생산자)
+		try {
+			walk(indexer, root, queue, failure);
+		} finally {
+			for (int i = 0; i < workers.length; i++) {
+				queue.put(END);
+			}
+			for (Thread worker : workers) {
+				worker.join();
+			}
+		}
+
+		rethrow(failure.get());
+	}
+
+	/**
+	 * 다른 스레드에서 기록한 오류를 호출한 스레드에서 다시 던진다. IOException 이나 unchecked 예외가 아니면 IOException 으로 감싼다.
+	 * 
+	 * @param failure 기록된 오류. null 이면 아무것도 하지 않는다.
+	 * @throws IOException
+	 */
+	static void rethrow(Throwable failure) throws IOException {
+		if (failure == null) {
+			return;
+		}
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		throw new IOException(failure);
+	}
+
+	/**
+	 * 디렉토리일 경우 파일이 나타날때까지 Recursive로 탐색하여 queue 에 넣는다.
+	 * 오류가 기록되면 탐색을 멈춘다.
+	 */
+	static void walk(FileIndexer indexer, File file, BlockingQueue<File> queue, AtomicReference<?> failure)
+			throws InterruptedException {
+		if (!file.canRead() || failure.get() != null || !indexer.accept(file)) {
+			return;
+		}
+
+		if (file.isDirectory()) {
+			String[] files = file.list();
+			if (files != null) {
+				// 이름순으로 탐색하여 실행할때마다 순서가 같도록 한다.
+				Arrays.sort(files);
+				for (int i = 0; i < files.length; i++) {
+					walk(indexer, new File(file, files[i]), queue, failure);
+				}
+			}
+		} else {
+			queue.put(file);
+		}
+	}
+
+}
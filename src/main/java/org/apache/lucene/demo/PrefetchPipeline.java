@@ -0,0 +1,322 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 파일 읽기(I/O)와 분석/색인을 서로 다른 스레드에서 수행하는 파이프라인.
+ * <p>
+ * 탐색기 → path queue → I/O 스레드 → ready queue → 색인 스레드 순서로 처리한다.
+ * I/O 스레드는 고정된 수의 버퍼 pool 에서 버퍼를 얻어 파일 내용을 미리 읽어두고,
+ * 색인 스레드는 읽어둔 내용을 분석하여 색인한 뒤 버퍼를 pool 에 돌려준다.
+ * pool 이 비면 I/O 스레드가 기다리므로 (backpressure) 메모리 사용량은 pool 크기로 제한된다.
+ * 버퍼보다 큰 파일은 미리 읽지 않고 색인 스레드가 직접 읽는다.
+ * <p>
+ * 각 단계의 queue 깊이와 대기(stall) 시간을 집계하여 어느 쪽이 병목인지 확인할 수 있다.
+ */
+public class PrefetchPipeline {
+
+	/** 스레드 종료 신호 */
+	private static final File END = new File("");
+	private static final Prefetched END_PREFETCHED = new Prefetched(END, null);
+
+	private final FileIndexer indexer;
+	private final int ioThreads;
+	private final int indexThreads;
+	private final int bufferSize;
+
+	private final BlockingQueue<ByteBuffer> pool;
+	private final BlockingQueue<File> paths;
+	private final BlockingQueue<Prefetched> ready;
+
+	private final AtomicLong ioStallNanos = new AtomicLong();
+	private final AtomicLong indexStallNanos = new AtomicLong();
+	private final AtomicLong prefetched = new AtomicLong();
+	private final AtomicLong passedThrough = new AtomicLong();
+	private final AtomicInteger maxReadyDepth = new AtomicInteger();
+
+	/**
+	 * @param indexer 색인 스레드들이 공유하는 색인기
+	 * @param ioThreads 파일을 읽는 스레드 수
+	 * @param indexThreads 분석/색인 스레드 수
+	 * @param numBuffers 버퍼 pool 의 버퍼 수
+	 * @param bufferSize 버퍼 하나의 크기. 이보다 큰 파일은 미리 읽지 않는다.
+	 */
+	public PrefetchPipeline(FileIndexer indexer, int ioThreads, int indexThreads, int numBuffers, int bufferSize) {
+		if (ioThreads <= 0 || indexThreads <= 0) {
+			throw new IllegalArgumentException("ioThreads and indexThreads must be > 0 (got " + ioThreads + ", " + indexThreads + ")");
+		}
+		if (numBuffers <= 0 || bufferSize <= 0) {
+			throw new IllegalArgumentException("numBuffers and bufferSize must be > 0 (got " + numBuffers + ", " + bufferSize + ")");
+		}
+		this.indexer = indexer;
+		this.ioThreads = ioThreads;
+		this.indexThreads = indexThreads;
+		this.bufferSize = bufferSize;
+		this.pool = new ArrayBlockingQueue<>(numBuffers);
+		for (int i = 0; i < numBuffers; i++) {
+			pool.add(ByteBuffer.allocateDirect(bufferSize));
+		}
+		this.paths = new ArrayBlockingQueue<>(numBuffers * 4);
+		// 버퍼보다 큰 파일은 버퍼 없이 넘어가므로 ready queue 도 따로 제한한다.
+		this.ready = new ArrayBlockingQueue<>(numBuffers + indexThreads);
+	}
+
+	/**
+	 * 디렉토리 트리 전체를 파이프라인으로 색인한다.
+	 * 모든 스레드가 끝날때까지 반환하지 않는다.
+	 * 
+	 * @param root 색인할 파일 또는 디렉토리
+	 * @throws IOException 색인 스레드에서 발생한 첫번째 오류 (unchecked 예외는 그대로 던진다)
+	 * @throws InterruptedException
+	 */
+	public void indexDocs(File root) throws IOException, InterruptedException {
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		Thread[] readers = new Thread[ioThreads];
+		for (int i = 0; i < readers.length; i++) {
+			readers[i] = new Thread("IndexFiles reader " + i) {
+				@Override
+				public void run() {
+					try {
+						readLoop(failure);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+			readers[i].start();
+		}
+
+		Thread[] workers = new Thread[indexThreads];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Thread("IndexFiles worker " + i) {
+				@Override
+				public void run() {
+					try {
+						indexLoop(failure);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+			workers[i].start();
+		}
+
+		// 디렉토리 탐색 (생산자)
+		try {
+			ParallelIndexer.walk(indexer, root, paths, failure);
+		} finally {
+			for (int i = 0; i < readers.length; i++) {
+				paths.put(END);
+			}
+			for (Thread reader : readers) {
+				reader.join();
+			}
+			for (int i = 0; i < workers.length; i++) {
+				ready.put(END_PREFETCHED);
+			}
+			for (Thread worker : workers) {
+				worker.join();
+			}
+		}
+
+		ParallelIndexer.rethrow(failure.get());
+	}
+
+	/**
+	 * I/O 단계: 파일 내용을 pool 의 버퍼에 읽어서 ready queue 에 넣는다.
+	 * 오류가 기록된 뒤에도 탐색기가 막히지 않도록 path queue 는 계속 비운다.
+	 */
+	private void readLoop(AtomicReference<Throwable> failure) throws InterruptedException {
+		File file;
+		while ((file = paths.take()) != END) {
+			if (failure.get() != null) {
+				continue;
+			}
+			ByteBuffer buffer = null;
+			try {
+				if (file.length() <= bufferSize && indexer.needsContent(file)) {
+					long start = System.nanoTime();
+					buffer = pool.take();
+					ioStallNanos.addAndGet(System.nanoTime() - start);
+					if (!read(file, buffer)) {
+						// 읽지 못한 파일은 색인 스레드가 직접 읽으면서 오류를 처리한다.
+						pool.put(buffer);
+						buffer = null;
+					}
+				}
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Throwable t) {
+				// 스레드가 죽으면 다른 단계가 queue 에서 영원히 기다리므로 기록하고 계속 진행한다.
+				failure.compareAndSet(null, t);
+				if (buffer != null) {
+					pool.put(buffer);
+				}
+				continue;
+			}
+			if (buffer != null) {
+				prefetched.incrementAndGet();
+			} else {
+				passedThrough.incrementAndGet();
+			}
+
+			long start = System.nanoTime();
+			ready.put(new Prefetched(file, buffer));
+			ioStallNanos.addAndGet(System.nanoTime() - start);
+			updateMax(maxReadyDepth, ready.size());
+		}
+	}
+
+	/**
+	 * 분석/색인 단계: 읽어둔 내용으로 색인하고 버퍼를 pool 에 돌려준다.
+	 * 분석기의 RuntimeException 등 모든 오류를 기록하고, 오류가 기록된 뒤에도 ready queue 는 계속 비운다.
+	 */
+	private void indexLoop(AtomicReference<Throwable> failure) throws InterruptedException {
+		while (true) {
+			long start = System.nanoTime();
+			Prefetched next = ready.take();
+			indexStallNanos.addAndGet(System.nanoTime() - start);
+			if (next == END_PREFETCHED) {
+				return;
+			}
+			try {
+				if (failure.get() == null) {
+					indexer.indexFile(next.file, next.buffer);
+				}
+			} catch (Throwable t) {
+				failure.compareAndSet(null, t);
+			} finally {
+				if (next.buffer != null) {
+					pool.put(next.buffer);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 파일 전체를 버퍼에 읽는다.
+	 * 
+	 * @return 파일 전체를 읽었으면 true. 파일을 열 수 없거나 버퍼보다 커졌으면 false.
+	 */
+	private static boolean read(File file, ByteBuffer buffer) {
+		buffer.clear();
+		try {
+			FileInputStream fis = new FileInputStream(file);
+			try {
+				FileChannel channel = fis.getChannel();
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer) < 0) {
+						break;
+					}
+				}
+				if (channel.position() < channel.size()) {
+					return false;
+				}
+			} finally {
+				fis.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+		buffer.flip();
+		return true;
+	}
+
+	private static void updateMax(AtomicInteger max, int value) {
+		while (true) {
+			int current = max.get();
+			if (value <= current || max.compareAndSet(current, value)) {
+				return;
+			}
+		}
+	}
+
+	/** 미리 읽은 파일 수 */
+	public long getPrefetched() {
+		return prefetched.get();
+	}
+
+	/** 미리 읽지 않고 색인 스레드가 직접 읽은 파일 수 */
+	public long getPassedThrough() {
+		return passedThrough.get();
+	}
+
+	/** path queue 의 현재 깊이 */
+	public int getPathQueueDepth() {
+		return paths.size();
+	}
+
+	/** ready queue 의 현재 깊이 */
+	public int getReadyQueueDepth() {
+		return ready.size();
+	}
+
+	/** ready queue 의 최대 깊이 */
+	public int getMaxReadyQueueDepth() {
+		return maxReadyDepth.get();
+	}
+
+	/** I/O 스레드들이 버퍼나 ready queue 를 기다린 시간의 합 (ms) */
+	public long getIoStallMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(ioStallNanos.get());
+	}
+
+	/** 색인 스레드들이 ready queue 를 기다린 시간의 합 (ms) */
+	public long getIndexStallMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(indexStallNanos.get());
+	}
+
+	/**
+	 * 파이프라인 집계 요약 문자열
+	 */
+	public String summary() {
+		return String.format(Locale.ROOT,
+				"pipeline: %d prefetched, %d read by indexer, ready queue max depth %d/%d,"
+						+ " io stall %d ms (%d threads), index stall %d ms (%d threads)",
+				getPrefetched(), getPassedThrough(), getMaxReadyQueueDepth(), ready.remainingCapacity() + ready.size(),
+				getIoStallMillis(), ioThreads, getIndexStallMillis(), indexThreads);
+	}
+
+	/**
+	 * 미리 읽어둔 파일
+	 */
+	private static final class Prefetched {
+		final File file;
+		final ByteBuffer buffer;
+
+		Prefetched(File file, ByteBuffer buffer) {
+			this.file = file;
+			this.buffer = buffer;
+		}
+	}
+
+}
@@ -0,0 +1,173 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.Version;
+
+/**
+ * 여러 스레드에서 사용할 수 있는 쿼리 파싱 서비스.
+ * <p>
+ * {@link QueryParser} 는 thread-safe 하지 않으므로 스레드마다 하나씩 만든다.
+ * 파싱 결과는 쿼리 문자열별로 LRU 캐시에 보관한다. Lucene 4 의 Query 는 변경할 수 있는 객체이므로
+ * 캐시에는 아무도 참조하지 않는 복제본을 두고, 호출자에게는 매번 새 복제본을 돌려준다.
+ * {@link Query#clone()} 은 최상위 객체만 복제하므로 호출자는 하위 절을 변경하면 안 된다.
+ */
+public class QueryParsingService {
+
+	private final String field;
+	private final Analyzer analyzer;
+	private final int maxCacheSize;
+
+	private final ThreadLocal<QueryParser> parsers = new ThreadLocal<QueryParser>() {
+		@Override
+		@SuppressWarnings("deprecation")
+		protected QueryParser initialValue() {
+			return new QueryParser(Version.LUCENE_4_10_0, field, analyzer);
+		}
+	};
+
+	/** 쿼리 문자열별 파싱 결과. 접근 순서로 정렬된다. */
+	private final LinkedHashMap<String, Query> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong parseNanos = new AtomicLong();
+
+	/**
+	 * @param field 기본 필드
+	 * @param analyzer 쿼리 분석기. Analyzer 는 스레드별로 TokenStream 을 재사용하므로 공유해도 된다.
+	 * @param maxCacheSize 캐시에 보관할 최대 쿼리 수. 0 이면 캐시하지 않는다.
+	 */
+	public QueryParsingService(String field, Analyzer analyzer, int maxCacheSize) {
+		if (maxCacheSize < 0) {
+			throw new IllegalArgumentException("maxCacheSize must be >= 0 (got " + maxCacheSize + ")");
+		}
+		this.field = field;
+		this.analyzer = analyzer;
+		this.maxCacheSize = maxCacheSize;
+	}
+
+	/**
+	 * 쿼리 문자열을 파싱한다. 앞뒤 공백이 다른 문자열은 같은 쿼리로 취급한다.
+	 * 
+	 * @param queryString
+	 * @return 호출자가 소유하는 Query
+	 * @throws ParseException 문법 오류. 오류는 캐시하지 않는다.
+	 */
+	public Query parse(String queryString) throws ParseException {
+		String key = queryString.trim();
+		Query cached;
+		synchronized (cache) {
+			cached = cache.get(key);
+		}
+		if (cached != null) {
+			hits.incrementAndGet();
+			return cached.clone();
+		}
+
+		misses.incrementAndGet();
+		long start = System.nanoTime();
+		Query query;
+		try {
+			query = parsers.get().parse(key);
+		} catch (ParseException e) {
+			errors.incrementAndGet();
+			throw e;
+		} finally {
+			parseNanos.addAndGet(System.nanoTime() - start);
+		}
+
+		if (maxCacheSize > 0) {
+			synchronized (cache) {
+				cache.put(key, query.clone());
+				Iterator<Map.Entry<String, Query>> it = cache.entrySet().iterator();
+				while (cache.size() > maxCacheSize && it.hasNext()) {
+					it.next();
+					it.remove();
+					evictions.incrementAndGet();
+				}
+			}
+		}
+		return query;
+	}
+
+	/** 기본 필드 */
+	public String getField() {
+		return field;
+	}
+
+	/** 캐시된 쿼리 수 */
+	public int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/** 캐시에서 찾은 횟수 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/** 파싱한 횟수 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/** 캐시 크기 때문에 제거된 쿼리 수 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/** 문법 오류 횟수 */
+	public long getErrors() {
+		return errors.get();
+	}
+
+	/** 파싱에 걸린 전체 시간(ns) */
+	public long getParseNanos() {
+		return parseNanos.get();
+	}
+
+	/**
+	 * 파싱 통계를 한 줄로 요약한다.
+	 */
+	public String summary() {
+		long parsed = misses.get();
+		long lookups = hits.get() + parsed;
+		return String.format(Locale.ROOT,
+				"query parser: %d lookups, %d cache hits (%.1f%%), %d parsed in %.1f ms (%.1f us/parse), %d errors, %d evictions",
+				lookups, hits.get(), lookups == 0 ? 0 : 100.0 * hits.get() / lookups, parsed,
+				parseNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1),
+				parsed == 0 ? 0 : parseNanos.get() / (double) TimeUnit.MICROSECONDS.toNanos(1) / parsed,
+				errors.get(), evictions.get());
+	}
+
+}
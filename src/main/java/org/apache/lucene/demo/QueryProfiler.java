@@ -0,0 +1,449 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 쿼리 하나의 실행 시간을 단계별, 절(clause)별로 측정한다.
+ * <p>
+ * 쿼리 트리의 각 노드(BooleanQuery 의 절 포함)를 감싸서 rewrite, Weight 생성, Scorer 생성,
+ * 문서 순회(nextDoc/advance), 점수 계산 시간을 기록하고, 최상위에서 결과 수집 시간을 기록한다.
+ * 호출마다 시간을 재므로 검색 자체가 느려진다. 문제를 찾을때만 사용한다.
+ * <p>
+ * 설정한 시간보다 오래 걸린 쿼리는 {@link #logIfSlow} 로 slow query 로그에 남긴다.
+ * 측정 도구 없이 실행한 검색의 시간도 {@link #logIfSlow(Query, long, long, String, QueryProfiler)} 로 남길 수 있다.
+ */
+public class QueryProfiler {
+
+	/** slow query 로그. logback.xml 에서 별도 파일로 보낸다. */
+	private static final Logger SLOW_LOG = LoggerFactory.getLogger(QueryProfiler.class.getName() + ".slowlog");
+
+	/**
+	 * 쿼리 트리의 노드 하나에서 걸린 시간. 자식 노드의 시간을 포함한다.
+	 */
+	public static final class Node {
+		private final String query;
+		private final List<Node> children = new ArrayList<>();
+		final AtomicLong rewriteNanos = new AtomicLong();
+		final AtomicLong weightNanos = new AtomicLong();
+		final AtomicLong scorerNanos = new AtomicLong();
+		final AtomicLong iterateNanos = new AtomicLong();
+		final AtomicLong scoreNanos = new AtomicLong();
+		final AtomicLong docs = new AtomicLong();
+
+		Node(Query query) {
+			this.query = query.toString();
+		}
+
+		/** 원래 쿼리 */
+		public String getQuery() {
+			return query;
+		}
+
+		/** BooleanQuery 의 절 */
+		public List<Node> getChildren() {
+			return children;
+		}
+
+		public long getRewriteNanos() {
+			return rewriteNanos.get();
+		}
+
+		public long getWeightNanos() {
+			return weightNanos.get();
+		}
+
+		public long getScorerNanos() {
+			return scorerNanos.get();
+		}
+
+		public long getIterateNanos() {
+			return iterateNanos.get();
+		}
+
+		public long getScoreNanos() {
+			return scoreNanos.get();
+		}
+
+		/** 순회한 문서 수 */
+		public long getDocs() {
+			return docs.get();
+		}
+	}
+
+	private final Query query;
+	private final Node root;
+	private final Query wrapped;
+	private long totalNanos;
+	private long collectNanos;
+	private long collected;
+
+	/**
+	 * @param query 측정할 쿼리
+	 */
+	public QueryProfiler(Query query) {
+		this.query = query;
+		this.root = new Node(query);
+		this.wrapped = wrap(query, root);
+	}
+
+	/**
+	 * BooleanQuery 는 절마다 노드를 만들어 감싼다.
+	 */
+	private static Query wrap(Query query, Node node) {
+		Query inner = query;
+		if (query instanceof BooleanQuery) {
+			BooleanQuery bq = (BooleanQuery) query;
+			BooleanQuery copy = new BooleanQuery(bq.isCoordDisabled());
+			copy.setMinimumNumberShouldMatch(bq.getMinimumNumberShouldMatch());
+			copy.setBoost(bq.getBoost());
+			for (BooleanClause clause : bq.clauses()) {
+				Node child = new Node(clause.getQuery());
+				node.children.add(child);
+				copy.add(wrap(clause.getQuery(), child), clause.getOccur());
+			}
+			inner = copy;
+		}
+		return new ProfilingQuery(node, inner);
+	}
+
+	/**
+	 * 쿼리를 실행하고 시간을 기록한다.
+	 * 
+	 * @param searcher
+	 * @param n 조회할 결과 건수
+	 * @return
+	 * @throws IOException
+	 */
+	public TopDocs search(IndexSearcher searcher, int n) throws IOException {
+		TopScoreDocCollector top = TopScoreDocCollector.create(n, true);
+		TimingCollector timing = new TimingCollector(top);
+		long start = System.nanoTime();
+		searcher.search(wrapped, timing);
+		totalNanos = System.nanoTime() - start;
+		collectNanos = timing.nanos;
+		collected = timing.count;
+		return top.topDocs();
+	}
+
+	/** 전체 실행 시간(ns) */
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	/** 결과 수집 시간(ns). Collector 가 호출한 점수 계산 시간을 포함한다. */
+	public long getCollectNanos() {
+		return collectNanos;
+	}
+
+	/** 최상위 노드 */
+	public Node getRoot() {
+		return root;
+	}
+
+	/**
+	 * 측정 결과를 여러 줄의 문자열로 만든다.
+	 * 
+	 * @param field 쿼리를 출력할때 생략할 기본 필드
+	 * @return
+	 */
+	public String format(String field) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ROOT, "total %.3f ms, collect %.3f ms (%d hits)\n",
+				millis(totalNanos), millis(collectNanos), collected));
+		format(sb, root, "  ");
+		return sb.toString();
+	}
+
+	private static void format(StringBuilder sb, Node node, String indent) {
+		sb.append(String.format(Locale.ROOT,
+				"%s%s: rewrite %.3f ms, weight %.3f ms, scorer %.3f ms, iterate %.3f ms (%d docs), score %.3f ms\n",
+				indent, node.query, millis(node.getRewriteNanos()), millis(node.getWeightNanos()),
+				millis(node.getScorerNanos()), millis(node.getIterateNanos()), node.getDocs(),
+				millis(node.getScoreNanos())));
+		for (Node child : node.children) {
+			format(sb, child, indent + "  ");
+		}
+	}
+
+	private static double millis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * 실행 시간이 기준보다 길면 쿼리와 측정 결과를 slow query 로그에 남긴다.
+	 * 
+	 * @param thresholdMillis 기준 시간(ms)
+	 * @param field 쿼리를 출력할때 생략할 기본 필드
+	 * @return 로그를 남겼으면 true
+	 */
+	public boolean logIfSlow(long thresholdMillis, String field) {
+		return logIfSlow(query, totalNanos, thresholdMillis, field, this);
+	}
+
+	/**
+	 * 측정 도구 없이 실행한 검색의 시간이 기준보다 길면 slow query 로그에 남긴다.
+	 * 
+	 * @param query 실행한 쿼리
+	 * @param tookNanos 실행 시간(ns)
+	 * @param thresholdMillis 기준 시간(ms)
+	 * @param field 쿼리를 출력할때 생략할 기본 필드
+	 * @param profiler 같은 쿼리의 단계별 측정 결과. 없으면 null
+	 * @return 로그를 남겼으면 true
+	 */
+	public static boolean logIfSlow(Query query, long tookNanos, long thresholdMillis, String field,
+			QueryProfiler profiler) {
+		if (tookNanos < TimeUnit.MILLISECONDS.toNanos(thresholdMillis)) {
+			return false;
+		}
+		SLOW_LOG.warn("slow query ({} ms >= {} ms): {}\n{}", TimeUnit.NANOSECONDS.toMillis(tookNanos),
+				thresholdMillis, query.toString(field), profiler != null ? profiler.format(field) : "");
+		return true;
+	}
+
+	/**
+	 * rewrite 와 Weight 생성 시간을 기록하는 쿼리.
+	 */
+	private static final class ProfilingQuery extends Query {
+		private final Node node;
+		private final Query inner;
+
+		ProfilingQuery(Node node, Query inner) {
+			this.node = node;
+			this.inner = inner;
+		}
+
+		/** 이 쿼리에 설정된 boost 를 반영한 원래 쿼리 */
+		private Query effective() {
+			if (getBoost() == 1f) {
+				return inner;
+			}
+			Query q = inner.clone();
+			q.setBoost(inner.getBoost() * getBoost());
+			return q;
+		}
+
+		@Override
+		public Query rewrite(IndexReader reader) throws IOException {
+			long start = System.nanoTime();
+			Query q = effective();
+			Query rewritten = q.rewrite(reader);
+			node.rewriteNanos.addAndGet(System.nanoTime() - start);
+			return rewritten == q ? this : new ProfilingQuery(node, rewritten);
+		}
+
+		@Override
+		public Weight createWeight(IndexSearcher searcher) throws IOException {
+			long start = System.nanoTime();
+			Weight weight = effective().createWeight(searcher);
+			node.weightNanos.addAndGet(System.nanoTime() - start);
+			return new ProfilingWeight(this, node, weight);
+		}
+
+		@Override
+		public void extractTerms(Set<Term> terms) {
+			inner.extractTerms(terms);
+		}
+
+		@Override
+		public String toString(String field) {
+			return effective().toString(field);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * super.hashCode() + inner.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return super.equals(obj) && inner.equals(((ProfilingQuery) obj).inner);
+		}
+	}
+
+	/**
+	 * Scorer 생성 시간을 기록하는 Weight.
+	 * bulkScorer 는 기본 구현을 사용하므로 항상 {@link #scorer} 를 거친다.
+	 */
+	private static final class ProfilingWeight extends Weight {
+		private final Query query;
+		private final Node node;
+		private final Weight inner;
+
+		ProfilingWeight(Query query, Node node, Weight inner) {
+			this.query = query;
+			this.node = node;
+			this.inner = inner;
+		}
+
+		@Override
+		public Explanation explain(AtomicReaderContext context, int doc) throws IOException {
+			return inner.explain(context, doc);
+		}
+
+		@Override
+		public Query getQuery() {
+			return query;
+		}
+
+		@Override
+		public float getValueForNormalization() throws IOException {
+			return inner.getValueForNormalization();
+		}
+
+		@Override
+		public void normalize(float norm, float topLevelBoost) {
+			inner.normalize(norm, topLevelBoost);
+		}
+
+		@Override
+		public Scorer scorer(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+			long start = System.nanoTime();
+			Scorer scorer = inner.scorer(context, acceptDocs);
+			node.scorerNanos.addAndGet(System.nanoTime() - start);
+			return scorer == null ? null : new ProfilingScorer(this, node, scorer);
+		}
+	}
+
+	/**
+	 * 문서 순회와 점수 계산 시간을 기록하는 Scorer.
+	 */
+	private static final class ProfilingScorer extends Scorer {
+		private final Node node;
+		private final Scorer inner;
+
+		ProfilingScorer(Weight weight, Node node, Scorer inner) {
+			super(weight);
+			this.node = node;
+			this.inner = inner;
+		}
+
+		@Override
+		public float score() throws IOException {
+			long start = System.nanoTime();
+			float score = inner.score();
+			node.scoreNanos.addAndGet(System.nanoTime() - start);
+			return score;
+		}
+
+		@Override
+		public int freq() throws IOException {
+			return inner.freq();
+		}
+
+		@Override
+		public int docID() {
+			return inner.docID();
+		}
+
+		@Override
+		public int nextDoc() throws IOException {
+			long start = System.nanoTime();
+			int doc = inner.nextDoc();
+			node.iterateNanos.addAndGet(System.nanoTime() - start);
+			if (doc != NO_MORE_DOCS) {
+				node.docs.incrementAndGet();
+			}
+			return doc;
+		}
+
+		@Override
+		public int advance(int target) throws IOException {
+			long start = System.nanoTime();
+			int doc = inner.advance(target);
+			node.iterateNanos.addAndGet(System.nanoTime() - start);
+			if (doc != NO_MORE_DOCS) {
+				node.docs.incrementAndGet();
+			}
+			return doc;
+		}
+
+		@Override
+		public long cost() {
+			return inner.cost();
+		}
+
+		@Override
+		public Collection<ChildScorer> getChildren() {
+			return Collections.singletonList(new ChildScorer(inner, "PROFILED"));
+		}
+	}
+
+	/**
+	 * 결과 수집 시간을 기록하는 Collector.
+	 */
+	private static final class TimingCollector extends Collector {
+		private final Collector inner;
+		long nanos;
+		long count;
+
+		TimingCollector(Collector inner) {
+			this.inner = inner;
+		}
+
+		@Override
+		public void setScorer(Scorer scorer) throws IOException {
+			inner.setScorer(scorer);
+		}
+
+		@Override
+		public void collect(int doc) throws IOException {
+			long start = System.nanoTime();
+			inner.collect(doc);
+			nanos += System.nanoTime() - start;
+			count++;
+		}
+
+		@Override
+		public void setNextReader(AtomicReaderContext context) throws IOException {
+			inner.setNextReader(context);
+		}
+
+		@Override
+		public boolean acceptsDocsOutOfOrder() {
+			return inner.acceptsDocsOutOfOrder();
+		}
+	}
+
+}
@@ -0,0 +1,186 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+
+/**
+ * 여러 스레드에서 하나의 {@link IndexSearcher} 로 쿼리 목록을 반복 실행하는 부하 생성기.
+ * <p>
+ * 각 스레드는 쿼리 목록을 서로 다른 위치부터 순서대로 실행하고, 쿼리별로
+ * {@link LatencyHistogram} 에 응답시간을 기록한다. 정해진 시간이 지나거나
+ * 스레드마다 쿼리 목록을 정해진 횟수만큼 실행하면 종료한다.
+ */
+public class QueryReplay {
+
+	private final IndexSearcher searcher;
+	private final List<Query> queries;
+	private final int numThreads;
+	private final int topN;
+
+	/** 쿼리별 응답시간. 실행 후 채워진다. */
+	private LatencyHistogram[] perQuery;
+	private LatencyHistogram overall;
+	private long elapsedNanos;
+
+	/**
+	 * @param searcher 모든 스레드가 공유하는 Searcher
+	 * @param queries 실행할 쿼리 목록
+	 * @param numThreads 부하 스레드 수
+	 * @param topN 쿼리마다 조회할 결과 건수
+	 */
+	public QueryReplay(IndexSearcher searcher, List<Query> queries, int numThreads, int topN) {
+		if (queries.isEmpty()) {
+			throw new IllegalArgumentException("queries must not be empty");
+		}
+		if (numThreads <= 0) {
+			throw new IllegalArgumentException("numThreads must be > 0 (got " + numThreads + ")");
+		}
+		this.searcher = searcher;
+		this.queries = queries;
+		this.numThreads = numThreads;
+		this.topN = topN;
+	}
+
+	/**
+	 * 부하를 생성한다.
+	 * 
+	 * @param durationMillis 실행 시간(ms). 0 이하이면 제한하지 않는다.
+	 * @param iterations 스레드마다 쿼리 목록을 실행할 횟수. 0 이하이면 제한하지 않는다.
+	 * @throws IOException 검색 스레드에서 발생한 첫번째 오류 (unchecked 예외는 그대로 던진다)
+	 * @throws InterruptedException
+	 */
+	public void run(long durationMillis, final long iterations) throws IOException, InterruptedException {
+		if (durationMillis <= 0 && iterations <= 0) {
+			throw new IllegalArgumentException("either durationMillis or iterations must be > 0");
+		}
+		final long startNanos = System.nanoTime();
+		final long deadline = durationMillis > 0 ? startNanos + TimeUnit.MILLISECONDS.toNanos(durationMillis) : 0;
+		final LatencyHistogram[][] histograms = new LatencyHistogram[numThreads][queries.size()];
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		Thread[] threads = new Thread[numThreads];
+		for (int t = 0; t < numThreads; t++) {
+			final int thread = t;
+			for (int q = 0; q < queries.size(); q++) {
+				histograms[t][q] = new LatencyHistogram();
+			}
+			threads[t] = new Thread("QueryReplay " + t) {
+				@Override
+				public void run() {
+					// 스레드마다 시작 위치를 달리해서 같은 쿼리가 동시에 실행되지 않도록 한다.
+					int q = thread * queries.size() / numThreads;
+					long executed = 0;
+					long limit = iterations > 0 ? iterations * queries.size() : Long.MAX_VALUE;
+					try {
+						while (executed < limit && failure.get() == null) {
+							long begin = System.nanoTime();
+							if (deadline != 0 && begin - deadline >= 0) {
+								break;
+							}
+							searcher.search(queries.get(q), topN);
+							histograms[thread][q].record(System.nanoTime() - begin);
+							executed++;
+							q = (q + 1) % queries.size();
+						}
+					} catch (Throwable t) {
+						// 실패한 스레드를 기록해서 다른 스레드도 멈추고 run() 에서 다시 던진다.
+						failure.compareAndSet(null, t);
+					}
+				}
+			};
+			threads[t].start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		elapsedNanos = System.nanoTime() - startNanos;
+		ParallelIndexer.rethrow(failure.get());
+
+		// 스레드별 기록을 합친다.
+		perQuery = new LatencyHistogram[queries.size()];
+		overall = new LatencyHistogram();
+		for (int q = 0; q < queries.size(); q++) {
+			perQuery[q] = new LatencyHistogram();
+			for (int t = 0; t < numThreads; t++) {
+				perQuery[q].add(histograms[t][q]);
+			}
+			overall.add(perQuery[q]);
+		}
+	}
+
+	/** 쿼리의 응답시간 */
+	public LatencyHistogram getHistogram(int query) {
+		return perQuery[query];
+	}
+
+	/** 전체 응답시간 */
+	public LatencyHistogram getOverall() {
+		return overall;
+	}
+
+	/** 실행 시간(ms) */
+	public long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+	}
+
+	/** 초당 처리 건수 */
+	public double qps(LatencyHistogram histogram) {
+		return elapsedNanos == 0 ? 0 : histogram.getCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+	}
+
+	/**
+	 * 쿼리별, 전체 QPS 와 응답시간 분포(ms)를 출력한다.
+	 * 
+	 * @param out
+	 * @param field 쿼리를 출력할때 생략할 기본 필드
+	 */
+	public void printReport(PrintStream out, String field) {
+		out.println(String.format(Locale.ROOT, "%d threads, %d queries, %d ms", numThreads, overall.getCount(),
+				getElapsedMillis()));
+		out.println(String.format(Locale.ROOT, "%-40s %10s %10s %10s %10s %10s %10s %10s",
+				"query", "count", "qps", "p50", "p90", "p99", "p999", "max"));
+		for (int q = 0; q < queries.size(); q++) {
+			printLine(out, queries.get(q).toString(field), perQuery[q]);
+		}
+		printLine(out, "(all)", overall);
+	}
+
+	private void printLine(PrintStream out, String name, LatencyHistogram histogram) {
+		if (name.length() > 40) {
+			name = name.substring(0, 37) + "...";
+		}
+		out.println(String.format(Locale.ROOT, "%-40s %10d %10.1f %10.3f %10.3f %10.3f %10.3f %10.3f",
+				name, histogram.getCount(), qps(histogram),
+				LatencyHistogram.toMillis(histogram.getPercentile(50)),
+				LatencyHistogram.toMillis(histogram.getPercentile(90)),
+				LatencyHistogram.toMillis(histogram.getPercentile(99)),
+				LatencyHistogram.toMillis(histogram.getPercentile(99.9)),
+				LatencyHistogram.toMillis(histogram.getMax())));
+	}
+
+}
@@ -0,0 +1,286 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * 쿼리와 페이지 위치별 검색 결과(ScoreDoc[], totalHits)를 보관하는 LRU 캐시.
+ * <p>
+ * 결과는 IndexReader 의 버전에 묶여 있으므로 다른 버전의 Reader 로 조회하거나 저장하면
+ * 캐시 전체를 비운다. 보관한 결과의 추정 메모리 사용량이 maxBytes 를 넘으면
+ * 가장 오래 사용되지 않은 항목부터 제거한다. 모든 메소드는 thread-safe 하다.
+ */
+public class QueryResultCache {
+
+	/** 항목 하나의 고정 비용 (key, value, map entry 객체) */
+	private static final long ENTRY_BYTES = 3 * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+			+ 8 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + 64;
+
+	/** 결과 하나의 비용 */
+	private static final long SCORE_DOC_BYTES = RamUsageEstimator.shallowSizeOfInstance(ScoreDoc.class)
+			+ RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+
+	/** 캐시 key. 쿼리는 호출자가 나중에 변경할 수 있으므로 복제해서 보관한다. */
+	private static final class Key {
+		final Query query;
+		final String cursor;
+		final int n;
+		final long ramBytes;
+
+		Key(Query query, PageCursor cursor, int n) {
+			this.query = query;
+			this.cursor = cursor.toToken();
+			this.n = n;
+			this.ramBytes = 2 * query.toString().length();
+		}
+
+		@Override
+		public int hashCode() {
+			return (query.hashCode() * 31 + cursor.hashCode()) * 31 + n;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return n == other.n && cursor.equals(other.cursor) && query.equals(other.query);
+		}
+	}
+
+	private final long maxBytes;
+	private final LinkedHashMap<Key, TopDocs> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/** 캐시된 결과가 속한 Reader 버전 */
+	private Object readerVersion;
+	private long ramBytesUsed;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	/**
+	 * @param maxBytes 보관할 결과의 최대 추정 메모리 (byte)
+	 */
+	public QueryResultCache(long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("maxBytes must be > 0 (got " + maxBytes + ")");
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Reader 의 버전. DirectoryReader 는 같은 commit 을 다시 열어도 버전이 같으므로 캐시를 유지한다.
+	 */
+	private static Object versionOf(IndexReader reader) {
+		if (reader instanceof DirectoryReader) {
+			return ((DirectoryReader) reader).getVersion();
+		}
+		return reader.getCombinedCoreAndDeletesKey();
+	}
+
+	/** Reader 버전이 바뀌었으면 캐시를 비운다. */
+	private void checkVersion(IndexReader reader) {
+		Object version = versionOf(reader);
+		if (!version.equals(readerVersion)) {
+			if (readerVersion != null) {
+				invalidations++;
+			}
+			entries.clear();
+			ramBytesUsed = 0;
+			readerVersion = version;
+		}
+	}
+
+	private static long ramBytes(Key key, TopDocs results) {
+		return ENTRY_BYTES + key.ramBytes + results.scoreDocs.length * SCORE_DOC_BYTES;
+	}
+
+	/**
+	 * 캐시된 결과를 조회한다.
+	 * 
+	 * @return 캐시된 결과. 없으면 null
+	 */
+	public synchronized TopDocs get(IndexReader reader, Query query, PageCursor cursor, int n) {
+		checkVersion(reader);
+		TopDocs results = entries.get(new Key(query, cursor, n));
+		if (results == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return results;
+	}
+
+	/**
+	 * 결과를 캐시에 저장한다. 결과 하나가 maxBytes 보다 크면 저장하지 않는다.
+	 */
+	public synchronized void put(IndexReader reader, Query query, PageCursor cursor, int n, TopDocs results) {
+		checkVersion(reader);
+		Key key = new Key(query.clone(), cursor, n);
+		long bytes = ramBytes(key, results);
+		if (bytes > maxBytes) {
+			return;
+		}
+		TopDocs previous = entries.put(key, results);
+		if (previous != null) {
+			ramBytesUsed -= ramBytes(key, previous);
+		}
+		ramBytesUsed += bytes;
+
+		// 가장 오래 사용되지 않은 항목부터 제거한다.
+		Iterator<Map.Entry<Key, TopDocs>> it = entries.entrySet().iterator();
+		while (ramBytesUsed > maxBytes && it.hasNext()) {
+			Map.Entry<Key, TopDocs> eldest = it.next();
+			ramBytesUsed -= ramBytes(eldest.getKey(), eldest.getValue());
+			it.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * 캐시된 결과가 있으면 반환하고, 없으면 검색해서 캐시에 저장한다.
+	 * 
+	 * @param searcher
+	 * @param query
+	 * @param cursor 조회할 페이지
+	 * @param n 페이지 크기
+	 * @return
+	 * @throws IOException
+	 */
+	public TopDocs search(IndexSearcher searcher, Query query, PageCursor cursor, int n) throws IOException {
+		IndexReader reader = searcher.getIndexReader();
+		TopDocs results = get(reader, query, cursor, n);
+		if (results == null) {
+			results = cursor.search(searcher, query, n);
+			put(reader, query, cursor, n, results);
+		}
+		return results;
+	}
+
+	/**
+	 * 쿼리들의 첫 페이지를 검색해서 캐시에 저장한다.
+	 * 
+	 * @param searcher
+	 * @param queries
+	 * @param n 페이지 크기
+	 * @throws IOException
+	 */
+	public void warm(IndexSearcher searcher, List<Query> queries, int n) throws IOException {
+		for (Query query : queries) {
+			search(searcher, query, PageCursor.FIRST, n);
+		}
+	}
+
+	/**
+	 * 쿼리 파일에서 가장 많이 나온 쿼리 문자열을 구한다. 횟수가 같으면 먼저 나온 쿼리가 앞선다.
+	 * 
+	 * @param queries 한 줄에 쿼리 하나가 있는 파일 (SearchFiles 의 -queries 형식)
+	 * @param topN
+	 * @return 많이 나온 순서의 쿼리 문자열
+	 * @throws IOException
+	 */
+	public static List<String> topQueries(Path queries, int topN) throws IOException {
+		final Map<String, Integer> counts = new HashMap<>();
+		List<String> distinct = new ArrayList<>();
+		for (String line : Files.readAllLines(queries, StandardCharsets.UTF_8)) {
+			line = line.trim();
+			if (line.length() == 0) {
+				continue;
+			}
+			Integer count = counts.get(line);
+			if (count == null) {
+				distinct.add(line);
+				count = 0;
+			}
+			counts.put(line, count + 1);
+		}
+		// 안정 정렬이므로 횟수가 같으면 처음 나온 순서가 유지된다.
+		Collections.sort(distinct, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				return Integer.compare(counts.get(b), counts.get(a));
+			}
+		});
+		return distinct.subList(0, Math.min(topN, distinct.size()));
+	}
+
+	/** 캐시된 결과 수 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/** 캐시된 결과의 추정 메모리 (byte) */
+	public synchronized long ramBytesUsed() {
+		return ramBytesUsed;
+	}
+
+	/** 캐시에서 찾은 횟수 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/** 캐시에 없었던 횟수 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/** 메모리 한도 때문에 제거된 항목 수 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/** Reader 버전이 바뀌어 캐시를 비운 횟수 */
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * 캐시 상태를 한 줄로 요약한다.
+	 */
+	public synchronized String summary() {
+		long lookups = hits + misses;
+		return String.format(Locale.ROOT,
+				"result cache: %d entries, %.1f KB, %d hits, %d misses (%.1f%% hit rate), %d evictions, %d invalidations",
+				entries.size(), ramBytesUsed / 1024.0, hits, misses, lookups == 0 ? 0 : 100.0 * hits / lookups,
+				evictions, invalidations);
+	}
+
+}
@@ -0,0 +1,156 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+
+/**
+ * 쿼리에 맞는 모든 문서를 docID 순서로 바로 출력하는 {@link Collector}.
+ * <p>
+ * {@link IndexSearcher#search(Query, int)} 에 전체 결과 수를 넘기면 결과 수만큼의 우선순위 큐를 만들지만,
+ * 여기서는 결과를 모으지 않고 문서마다 한 줄씩 출력하므로 결과 수와 관계없이 메모리 사용량이 일정하다.
+ * 점수는 계산하지 않는다.
+ * <p>
+ * 한 줄의 형식은 "쿼리번호 TAB docID TAB 필드1 TAB 필드2 ..." 이다. 여러 쿼리의 결과를 한 파일로 내보내도
+ * 쿼리 번호로 구분할 수 있다. 값이 여러개인 필드는 '|' 로 이어붙이고,
+ * 값 안의 TAB, 줄바꿈, '|', '\' 는 '\' 로 escape 한다.
+ */
+public class ResultExporter extends Collector {
+
+	private final Writer out;
+	private final String queryNumber;
+	private final StoredFieldLoader fields;
+	private final String[] names;
+
+	private AtomicReader reader;
+	private int docBase;
+	private long count;
+
+	/**
+	 * @param out 출력. 버퍼링된 Writer 를 사용한다.
+	 * @param queryNumber 각 줄의 첫번째 칸에 출력할 쿼리 번호
+	 * @param fields 출력할 stored field
+	 */
+	public ResultExporter(Writer out, int queryNumber, StoredFieldLoader fields) {
+		this.out = out;
+		this.queryNumber = Integer.toString(queryNumber);
+		this.fields = fields;
+		this.names = fields.getFields().toArray(new String[0]);
+	}
+
+	/**
+	 * 쿼리에 맞는 모든 문서를 출력한다.
+	 * 
+	 * @param searcher
+	 * @param query
+	 * @param queryNumber 각 줄의 첫번째 칸에 출력할 쿼리 번호
+	 * @param out 출력. 버퍼링된 Writer 를 사용한다.
+	 * @param fields 출력할 stored field
+	 * @return 출력한 문서 수
+	 * @throws IOException
+	 */
+	public static long export(IndexSearcher searcher, Query query, int queryNumber, Writer out,
+			StoredFieldLoader fields) throws IOException {
+		ResultExporter exporter = new ResultExporter(out, queryNumber, fields);
+		// Collector 를 받는 search 는 executor 가 있어도 세그먼트를 차례로 검색하므로 docID 순서가 유지된다.
+		searcher.search(query, exporter);
+		out.flush();
+		return exporter.getCount();
+	}
+
+	/** 출력한 문서 수 */
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public void setScorer(Scorer scorer) {
+		// 점수는 출력하지 않는다.
+	}
+
+	@Override
+	public void setNextReader(AtomicReaderContext context) {
+		reader = context.reader();
+		docBase = context.docBase;
+	}
+
+	@Override
+	public void collect(int doc) throws IOException {
+		// 문서마다 새 visitor 를 만들고 출력한 뒤에는 참조하지 않는다.
+		DocumentStoredFieldVisitor visitor = new DocumentStoredFieldVisitor(fields.getFields());
+		reader.document(doc, visitor);
+		Document document = visitor.getDocument();
+
+		out.write(queryNumber);
+		out.write('\t');
+		out.write(Integer.toString(docBase + doc));
+		for (String name : names) {
+			out.write('\t');
+			String[] values = document.getValues(name);
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0) {
+					out.write('|');
+				}
+				escape(values[i]);
+			}
+		}
+		out.write('\n');
+		count++;
+	}
+
+	private void escape(String value) throws IOException {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '\t':
+				out.write("\\t");
+				break;
+			case '\n':
+				out.write("\\n");
+				break;
+			case '\r':
+				out.write("\\r");
+				break;
+			case '|':
+			case '\\':
+				out.write('\\');
+				out.write(c);
+				break;
+			default:
+				out.write(c);
+			}
+		}
+	}
+
+	/** docID 순서로 출력하기 위해 순서대로 받는다. */
+	@Override
+	public boolean acceptsDocsOutOfOrder() {
+		return false;
+	}
+
+}
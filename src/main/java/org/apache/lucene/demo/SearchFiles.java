@@ -18,19 +18,32 @@ package org.apache.lucene.demo;
  */
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
@@ -48,7 +61,12 @@ public class SearchFiles {
 	public static void main(String[] args) throws Exception {
 		
 		String usage = "Usage:\tjava org.apache.lucene.demo.SearchFiles "
-				+ "[-index dir] [-field f] [-repeat n] [-queries file] [-query string] [-raw] [-paging hitsPerPage]\n\n"
+				+ "[-index dir] [-field f] [-repeat n] [-queries file] [-query string] [-raw] [-paging hitsPerPage]\n"
+				+ "\t[-searchThreads n] [-after cursor] [-cache MB [-warmup file [-warmupCount n]]]\n"
+				+ "\t[-fields f1,f2,...] [-profile] [-slowMs n] [-parseCache n]\n"
+				+ "\t[-sort relevance|modified] [-sharded] [-refresh seconds [-warmQueries file [-warmSample n]]]\n"
+				+ "\t[-replay -queries file [-threads n] [-seconds n | -iterations n]] [-batch -queries file]\n"
+				+ "\t[-export file|- [-fields f1,f2,...]]\n\n"
 				+ "See http://lucene.apache.org/core/4_1_0/demo/ for details.";
 		
 		if (args.length > 0 && ("-h".equals(args[0]) || "-help".equals(args[0]))) {
@@ -65,6 +83,26 @@ public class SearchFiles {
 		int repeat = 0;
 		boolean raw = false;
 		int hitsPerPage = 10;
+		boolean replay = false;
+		boolean batch = false;
+		String export = null;
+		int threads = 1;
+		long seconds = 0;
+		long iterations = 0;
+		int searchThreads = 0;
+		PageCursor after = PageCursor.FIRST;
+		long cacheMB = 0;
+		String warmup = null;
+		int warmupCount = 100;
+		StoredFieldLoader fields = null;
+		boolean profile = false;
+		long slowMs = -1;
+		int parseCache = 1000;
+		boolean sortByModified = false;
+		boolean sharded = false;
+		long refreshSeconds = 1;
+		String warmQueryLog = null;
+		int warmSample = 100;
 
 		for (int i = 0; i < args.length; i++) {
 			if ("-index".equals(args[i])) {
@@ -91,19 +129,190 @@ public class SearchFiles {
 					System.exit(1);
 				}
 				i++;
+			} else if ("-replay".equals(args[i])) {
+				replay = true;
+			} else if ("-batch".equals(args[i])) {
+				batch = true;
+			} else if ("-export".equals(args[i])) {
+				export = args[i + 1];
+				i++;
+			} else if ("-threads".equals(args[i])) {
+				threads = Integer.parseInt(args[i + 1]);
+				i++;
+			} else if ("-seconds".equals(args[i])) {
+				seconds = Long.parseLong(args[i + 1]);
+				i++;
+			} else if ("-iterations".equals(args[i])) {
+				iterations = Long.parseLong(args[i + 1]);
+				i++;
+			} else if ("-searchThreads".equals(args[i])) {
+				searchThreads = Integer.parseInt(args[i + 1]);
+				i++;
+			} else if ("-after".equals(args[i])) {
+				after = PageCursor.parse(args[i + 1]);
+				i++;
+			} else if ("-cache".equals(args[i])) {
+				cacheMB = Long.parseLong(args[i + 1]);
+				i++;
+			} else if ("-warmup".equals(args[i])) {
+				warmup = args[i + 1];
+				i++;
+			} else if ("-warmupCount".equals(args[i])) {
+				warmupCount = Integer.parseInt(args[i + 1]);
+				i++;
+			} else if ("-fields".equals(args[i])) {
+				fields = StoredFieldLoader.parse(args[i + 1]);
+				i++;
+			} else if ("-profile".equals(args[i])) {
+				profile = true;
+			} else if ("-slowMs".equals(args[i])) {
+				slowMs = Long.parseLong(args[i + 1]);
+				// slow query 로그 파일은 이 옵션을 지정했을때만 만든다 (logback.xml). 로거를 쓰기 전에 설정해야 한다.
+				if (System.getProperty("slowlog.file") == null) {
+					System.setProperty("slowlog.file", "slow-queries.log");
+				}
+				i++;
+			} else if ("-parseCache".equals(args[i])) {
+				parseCache = Integer.parseInt(args[i + 1]);
+				i++;
+			} else if ("-refresh".equals(args[i])) {
+				refreshSeconds = Long.parseLong(args[i + 1]);
+				i++;
+			} else if ("-warmQueries".equals(args[i])) {
+				warmQueryLog = args[i + 1];
+				i++;
+			} else if ("-warmSample".equals(args[i])) {
+				warmSample = Integer.parseInt(args[i + 1]);
+				i++;
+			} else if ("-sharded".equals(args[i])) {
+				sharded = true;
+			} else if ("-sort".equals(args[i])) {
+				if ("modified".equals(args[i + 1])) {
+					sortByModified = true;
+				} else if (!"relevance".equals(args[i + 1])) {
+					System.err.println("Unknown sort: " + args[i + 1]);
+					System.exit(1);
+				}
+				i++;
 			}
 		}
 
-		// 디렉토리 오픈
-		FSDirectory dir = FSDirectory.open(new File(index));
-		
+		if (replay && queries == null) {
+			System.err.println("-replay requires -queries.");
+			System.exit(1);
+		}
+		if (batch && queries == null) {
+			System.err.println("-batch requires -queries.");
+			System.exit(1);
+		}
+		if (replay && seconds <= 0 && iterations <= 0) {
+			seconds = 30;
+		}
+
 		// 기본분석기 생성
 		Analyzer analyzer = new StandardAnalyzer(Version.LUCENE_4_10_0);
 
-		// Searcher 생성
-		IndexReader reader = DirectoryReader.open(dir);
-		IndexSearcher searcher = new IndexSearcher(reader);
-		
+		// IndexFiles -shards 로 만든 shard 색인들을 한번에 검색한다.
+		if (sharded) {
+			int numThreads = searchThreads > 0 ? searchThreads : Runtime.getRuntime().availableProcessors();
+			ExecutorService shardExecutor = SlicedIndexSearcher.newExecutor(numThreads);
+			ShardedSearcher shards = ShardedSearcher.open(new File(index), shardExecutor);
+			try {
+				doShardedSearch(shards, new QueryParsingService(field, analyzer, parseCache), queries, queryString,
+						hitsPerPage, raw);
+			} finally {
+				shards.close();
+				shardExecutor.shutdown();
+			}
+			return;
+		}
+
+		// 디렉토리 오픈
+		FSDirectory dir = FSDirectory.open(new File(index));
+
+		// 쿼리파서를 생성한다. 같은 쿼리 문자열은 다시 파싱하지 않는다.
+		QueryParsingService parser = new QueryParsingService(field, analyzer, parseCache);
+
+		// 검색 서비스 생성. 새 commit 이 있으면 주기적으로 Searcher 를 교체한다.
+		// 검색 스레드 풀을 지정하면 세그먼트들을 나누어 병렬로 검색한다.
+		// 쿼리 로그를 지정하면 새 Searcher 를 공개하기 전에 최근 쿼리들로 준비한다.
+		ExecutorService searchExecutor = searchThreads > 0 ? SlicedIndexSearcher.newExecutor(searchThreads) : null;
+		WarmingSearcherFactory factory = warmQueryLog != null
+				? WarmingSearcherFactory.fromQueryLog(searchExecutor, Paths.get(warmQueryLog), warmSample, parser)
+				: new WarmingSearcherFactory(searchExecutor, Collections.<Query> emptyList());
+		SearchService service = new SearchService(dir, factory, TimeUnit.SECONDS.toMillis(refreshSeconds));
+		if (searchExecutor != null) {
+			// 결과를 표준출력으로 내보낼때는 섞이지 않도록 표준에러로 출력한다.
+			PrintStream status = "-".equals(export) ? System.err : System.out;
+			IndexSearcher searcher = service.acquire();
+			try {
+				status.println("Searching " + searcher.getIndexReader().leaves().size() + " segments in "
+						+ ((SlicedIndexSearcher) searcher).getSliceCount() + " slices with " + searchThreads + " threads");
+			} finally {
+				service.release(searcher);
+			}
+		}
+
+		// 부하 생성 모드
+		if (replay) {
+			IndexSearcher searcher = service.acquire();
+			try {
+				replay(searcher, queries, parser, threads, seconds, iterations);
+			} finally {
+				service.release(searcher);
+			}
+			System.out.println(parser.summary());
+			close(service, searchExecutor);
+			return;
+		}
+
+		// 쿼리 파일의 쿼리들을 한번에 검색한다.
+		if (batch) {
+			ExecutorService batchExecutor = searchExecutor != null ? searchExecutor
+					: SlicedIndexSearcher.newExecutor(Runtime.getRuntime().availableProcessors());
+			IndexSearcher searcher = service.acquire();
+			try {
+				batch(searcher, queries, parser, new BatchSearcher(batchExecutor), hitsPerPage);
+			} finally {
+				service.release(searcher);
+				if (batchExecutor != searchExecutor) {
+					batchExecutor.shutdown();
+				}
+			}
+			close(service, searchExecutor);
+			return;
+		}
+
+		// 쿼리에 맞는 모든 문서를 파일이나 표준출력으로 내보낸다.
+		if (export != null) {
+			try {
+				export(service, parser, queries, queryString, export, fields != null ? fields : new StoredFieldLoader("path"));
+			} finally {
+				close(service, searchExecutor);
+			}
+			return;
+		}
+
+		// 결과 캐시를 생성하고 자주 쓰는 쿼리의 첫 페이지를 미리 저장한다.
+		QueryResultCache cache = null;
+		if (cacheMB > 0) {
+			cache = new QueryResultCache(cacheMB << 20);
+			if (warmup != null) {
+				Date start = new Date();
+				List<Query> warmQueries = new ArrayList<>();
+				for (String line : QueryResultCache.topQueries(Paths.get(warmup), warmupCount)) {
+					warmQueries.add(parser.parse(line));
+				}
+				IndexSearcher searcher = service.acquire();
+				try {
+					cache.warm(searcher, warmQueries, hitsPerPage);
+				} finally {
+					service.release(searcher);
+				}
+				System.out.println("Warmed result cache with " + warmQueries.size() + " queries in "
+						+ (new Date().getTime() - start.getTime()) + " ms");
+			}
+		}
 
 		// 쿼리 문자열을 조회 할 InputStream을 생성한다.
 		BufferedReader in = null;
@@ -115,9 +324,6 @@ public class SearchFiles {
 					new InputStreamReader(System.in, StandardCharsets.UTF_8));
 		}
 		
-		// 쿼리파서를 생성한다.
-		QueryParser parser = new QueryParser(Version.LUCENE_4_10_0, field, analyzer);
-		
 		while (true) {
 			if (queries == null && queryString == null) { // prompt the user
 				System.out.println("Enter query: ");
@@ -139,24 +345,422 @@ public class SearchFiles {
 			Query query = parser.parse(line);
 			System.out.println("Searching for: " + query.toString(field));
 
-			// 검색작업 실행 (반복 실행 옵션)
-			if (repeat > 0) {
-				Date start = new Date();
-				for (int i = 0; i < repeat; i++) {
-					searcher.search(query, null, 100);
+			// 쿼리마다 현재 Searcher 를 얻는다. 페이지를 넘기는 동안에는 같은 Searcher 를 유지한다.
+			IndexSearcher searcher = service.acquire();
+			try {
+				// 검색작업 실행 (반복 실행 옵션)
+				if (repeat > 0) {
+					Date start = new Date();
+					for (int i = 0; i < repeat; i++) {
+						searcher.search(query, null, 100);
+					}
+					Date end = new Date();
+					System.out.println("Time: " + (end.getTime() - start.getTime()) + "ms");
+				}
+
+				// 단계별 실행 시간 측정. 측정 도구가 검색을 느리게 하므로 -profile 일때만 따로 실행한다.
+				QueryProfiler profiler = null;
+				if (profile) {
+					profiler = new QueryProfiler(query);
+					profiler.search(searcher, hitsPerPage);
+					System.out.print(profiler.format(field));
+				}
+
+				// 직렬 검색과 병렬 검색의 응답시간 비교
+				if (searchExecutor != null) {
+					compareSearch(new IndexSearcher(searcher.getIndexReader()), searcher, query, repeat > 0 ? repeat : 20);
+				}
+
+				long tookNanos;
+				if (sortByModified) {
+					// 최신 파일 순서로 상위 결과만 조회한다.
+					tookNanos = doNewestSearch(searcher, query, hitsPerPage, raw, fields);
+				} else {
+					// 검색작업 실행 (페이징)
+					tookNanos = doPagingSearch(in, searcher, query, hitsPerPage, raw,
+							queries == null && queryString == null, after, cache, fields);
+				}
+
+				// 실제 검색 시간으로 느린 쿼리를 판단한다.
+				if (slowMs >= 0) {
+					QueryProfiler.logIfSlow(query, tookNanos, slowMs, field, profiler);
+				}
+
+				if (queryString != null) {
+					break;
+				}
+			} finally {
+				service.release(searcher);
+			}
+		}
+		if (cache != null) {
+			System.out.println(cache.summary());
+		}
+		System.out.println(parser.summary());
+		close(service, searchExecutor);
+	}
+
+
+	private static void close(SearchService service, ExecutorService searchExecutor) throws IOException {
+		service.close();
+		if (searchExecutor != null) {
+			searchExecutor.shutdown();
+		}
+	}
+
+
+	/**
+	 * 같은 쿼리를 직렬 Searcher 와 병렬 Searcher 로 번갈아 실행하고 응답시간을 비교한다.
+	 * 
+	 * @param serial executor 가 없는 Searcher
+	 * @param parallel executor 로 세그먼트를 병렬 검색하는 Searcher
+	 * @param query
+	 * @param runs 각 Searcher 의 실행 횟수
+	 * @throws IOException
+	 */
+	public static void compareSearch(IndexSearcher serial, IndexSearcher parallel, Query query, int runs)
+			throws IOException {
+		LatencyHistogram serialLatency = new LatencyHistogram();
+		LatencyHistogram parallelLatency = new LatencyHistogram();
+		for (int i = 0; i < runs; i++) {
+			long begin = System.nanoTime();
+			serial.search(query, null, 100);
+			serialLatency.record(System.nanoTime() - begin);
+
+			begin = System.nanoTime();
+			parallel.search(query, null, 100);
+			parallelLatency.record(System.nanoTime() - begin);
+		}
+		System.out.println(String.format(Locale.ROOT,
+				"Serial p50 %.3f ms, p99 %.3f ms / parallel p50 %.3f ms, p99 %.3f ms (x%.2f at p50, x%.2f at p99)",
+				LatencyHistogram.toMillis(serialLatency.getPercentile(50)),
+				LatencyHistogram.toMillis(serialLatency.getPercentile(99)),
+				LatencyHistogram.toMillis(parallelLatency.getPercentile(50)),
+				LatencyHistogram.toMillis(parallelLatency.getPercentile(99)),
+				speedup(serialLatency.getPercentile(50), parallelLatency.getPercentile(50)),
+				speedup(serialLatency.getPercentile(99), parallelLatency.getPercentile(99))));
+	}
+
+	private static double speedup(long serialNanos, long parallelNanos) {
+		return parallelNanos == 0 ? 0 : (double) serialNanos / parallelNanos;
+	}
+
+
+	/**
+	 * 쿼리 파일의 쿼리들을 여러 스레드에서 반복 실행하고 QPS 와 응답시간 분포를 출력한다.
+	 * 
+	 * @param searcher 모든 스레드가 공유하는 Searcher
+	 * @param queries 한 줄에 쿼리 하나가 있는 파일
+	 * @param parser
+	 * @param threads 부하 스레드 수
+	 * @param seconds 실행 시간(초). 0 이면 제한하지 않는다.
+	 * @param iterations 스레드마다 쿼리 파일을 실행할 횟수. 0 이면 제한하지 않는다.
+	 * @throws Exception
+	 */
+	public static void replay(IndexSearcher searcher, String queries, QueryParsingService parser,
+			int threads, long seconds, long iterations) throws Exception {
+		// 검색 시간만 측정하도록 실행 전에 모두 파싱해둔다.
+		List<Query> parsed = new ArrayList<>();
+		for (String line : Files.readAllLines(Paths.get(queries), StandardCharsets.UTF_8)) {
+			line = line.trim();
+			if (line.length() > 0) {
+				parsed.add(parser.parse(line));
+			}
+		}
+
+		System.out.println("Replaying " + parsed.size() + " queries from " + queries + " with " + threads + " threads");
+		QueryReplay load = new QueryReplay(searcher, parsed, threads, 100);
+		load.run(TimeUnit.SECONDS.toMillis(seconds), iterations);
+		load.printReport(System.out, parser.getField());
+	}
+
+
+	/** -batch 에서 직렬 검색과 배치 검색을 각각 측정할 횟수 */
+	private static final int BATCH_ROUNDS = 5;
+
+	/**
+	 * 쿼리 파일의 쿼리들을 하나씩 차례로 검색한 시간과 한번에 검색한 시간을 비교하고 쿼리별 결과 수를 출력한다.
+	 * 
+	 * @param searcher
+	 * @param queries 한 줄에 쿼리 하나가 있는 파일
+	 * @param parser
+	 * @param batchSearcher
+	 * @param n 쿼리마다 조회할 결과 수
+	 * @throws Exception
+	 */
+	public static void batch(IndexSearcher searcher, String queries, QueryParsingService parser,
+			BatchSearcher batchSearcher, int n) throws Exception {
+		List<Query> parsed = new ArrayList<>();
+		for (String line : Files.readAllLines(Paths.get(queries), StandardCharsets.UTF_8)) {
+			line = line.trim();
+			if (line.length() > 0) {
+				parsed.add(parser.parse(line));
+			}
+		}
+
+		// 직렬 검색은 쿼리를 하나씩 실행한다.
+		IndexSearcher serial = new IndexSearcher(searcher.getIndexReader());
+		// 먼저 실행한 쪽만 cold 상태로 측정되지 않도록 한번씩 실행해서 캐시를 채운 뒤에 순서를 번갈아 측정한다.
+		searchSequential(serial, parsed, n);
+		List<TopDocs> results = batchSearcher.search(searcher, parsed, n);
+		LatencyHistogram sequentialLatency = new LatencyHistogram();
+		LatencyHistogram batchLatency = new LatencyHistogram();
+		for (int round = 0; round < BATCH_ROUNDS; round++) {
+			if (round % 2 == 0) {
+				sequentialLatency.record(searchSequential(serial, parsed, n));
+			}
+			long begin = System.nanoTime();
+			results = batchSearcher.search(searcher, parsed, n);
+			batchLatency.record(System.nanoTime() - begin);
+			if (round % 2 == 1) {
+				sequentialLatency.record(searchSequential(serial, parsed, n));
+			}
+		}
+		long sequentialNanos = sequentialLatency.getPercentile(50);
+		long batchNanos = batchLatency.getPercentile(50);
+
+		for (int i = 0; i < parsed.size(); i++) {
+			System.out.println(results.get(i).totalHits + " total matching documents for " + parsed.get(i).toString(
+					parser.getField()));
+		}
+		System.out.println(String.format(Locale.ROOT,
+				"Batch of %d queries: sequential p50 %.3f ms, batch p50 %.3f ms (x%.2f, %d runs each after warm-up)",
+				parsed.size(), LatencyHistogram.toMillis(sequentialNanos), LatencyHistogram.toMillis(batchNanos),
+				speedup(sequentialNanos, batchNanos), BATCH_ROUNDS));
+	}
+
+	/**
+	 * 쿼리들을 하나씩 차례로 검색한다.
+	 * 
+	 * @return 걸린 시간(ns)
+	 */
+	private static long searchSequential(IndexSearcher serial, List<Query> queries, int n) throws IOException {
+		long begin = System.nanoTime();
+		for (Query query : queries) {
+			serial.search(query, n);
+		}
+		return System.nanoTime() - begin;
+	}
+
+
+	/**
+	 * 쿼리마다 맞는 모든 문서를 docID 순서로 내보낸다. 결과를 모으지 않으므로 결과 수와 관계없이 메모리 사용량이 일정하다.
+	 * 각 줄의 첫번째 칸은 1 부터 시작하는 쿼리 번호이다 (비어있지 않은 쿼리 줄의 순서).
+	 * 진행 상황은 표준출력으로 내보낼때 섞이지 않도록 표준에러로 출력한다.
+	 * 
+	 * @param service
+	 * @param parser
+	 * @param queries 한 줄에 쿼리 하나가 있는 파일. null 이면 queryString 이나 표준입력의 쿼리를 사용한다.
+	 * @param queryString
+	 * @param target 출력 파일. "-" 이면 표준출력
+	 * @param fields 출력할 stored field
+	 * @throws Exception
+	 */
+	public static void export(SearchService service, QueryParsingService parser, String queries, String queryString,
+			String target, StoredFieldLoader fields) throws Exception {
+		List<String> lines;
+		if (queryString != null) {
+			lines = Collections.singletonList(queryString);
+		} else if (queries != null) {
+			lines = Files.readAllLines(Paths.get(queries), StandardCharsets.UTF_8);
+		} else {
+			lines = new ArrayList<>();
+			BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				lines.add(line);
+			}
+		}
+
+		Writer out = "-".equals(target)
+				? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+				: Files.newBufferedWriter(Paths.get(target), StandardCharsets.UTF_8);
+		try {
+			int queryNumber = 0;
+			for (String line : lines) {
+				line = line.trim();
+				if (line.length() == 0) {
+					continue;
 				}
-				Date end = new Date();
-				System.out.println("Time: " + (end.getTime() - start.getTime()) + "ms");
+				Query query = parser.parse(line);
+				queryNumber++;
+				long begin = System.nanoTime();
+				long count;
+				IndexSearcher searcher = service.acquire();
+				try {
+					count = ResultExporter.export(searcher, query, queryNumber, out, fields);
+				} finally {
+					service.release(searcher);
+				}
+				System.err.println(String.format(Locale.ROOT, "Exported %d documents for query %d (%s) in %.3f ms",
+						count, queryNumber, query.toString(parser.getField()),
+						LatencyHistogram.toMillis(System.nanoTime() - begin)));
+			}
+		} finally {
+			if ("-".equals(target)) {
+				out.flush();
+			} else {
+				out.close();
+			}
+		}
+	}
+
+
+	/**
+	 * cursor 가 가리키는 한 페이지를 조회한다. 캐시가 있으면 캐시를 거친다.
+	 */
+	private static TopDocs searchPage(IndexSearcher searcher, QueryResultCache cache, Query query, PageCursor cursor,
+			int hitsPerPage) throws IOException {
+		if (cache == null) {
+			return cursor.search(searcher, query, hitsPerPage);
+		}
+		return cache.search(searcher, query, cursor, hitsPerPage);
+	}
+
+
+	/**
+	 * 여러 shard 를 검색한다. 쿼리 대신 다음 명령으로 실행 중에 shard 를 바꿀 수 있다.
+	 * <ul>
+	 * <li>:add path - shard 색인 디렉토리를 추가한다.
+	 * <li>:remove path - shard 를 제거한다.
+	 * <li>:shards - shard 목록을 출력한다.
+	 * </ul>
+	 * 
+	 * @param shards
+	 * @param parser
+	 * @param queries 쿼리 파일. null 이면 표준입력에서 읽는다.
+	 * @param queryString 실행할 쿼리 하나. null 이면 queries 또는 표준입력에서 읽는다.
+	 * @param hitsPerPage
+	 * @param raw
+	 * @throws Exception
+	 */
+	public static void doShardedSearch(ShardedSearcher shards, QueryParsingService parser, String queries,
+			String queryString, int hitsPerPage, boolean raw) throws Exception {
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				queries != null ? new FileInputStream(queries) : System.in, StandardCharsets.UTF_8));
+		boolean interactive = queries == null && queryString == null;
+		System.out.println("Searching " + shards.getShardNames().size() + " shards: " + shards.getShardNames());
+
+		while (true) {
+			if (interactive) {
+				System.out.println("Enter query: ");
+			}
+			String line = queryString != null ? queryString : in.readLine();
+			if (line == null || line.trim().length() == 0) {
+				break;
+			}
+			line = line.trim();
+
+			// shard 관리 명령
+			if (line.startsWith(":add ")) {
+				shards.addShard(new File(line.substring(5).trim()));
+				System.out.println("Shards: " + shards.getShardNames());
+				continue;
+			} else if (line.startsWith(":remove ")) {
+				String name = line.substring(8).trim();
+				System.out.println(shards.removeShard(name) ? "Removed " + name : "No such shard: " + name);
+				continue;
+			} else if (line.equals(":shards")) {
+				System.out.println("Shards: " + shards.getShardNames());
+				continue;
 			}
 
-			// 검색작업 실행 (페이징)
-			doPagingSearch(in, searcher, query, hitsPerPage, raw, queries == null && queryString == null);
+			Query query = parser.parse(line);
+			System.out.println("Searching for: " + query.toString(parser.getField()));
+
+			// 페이지를 넘기는 동안 같은 shard 구성을 사용해야 shardIndex 가 유지된다.
+			ShardedSearcher.View view = shards.acquire();
+			try {
+				ScoreDoc after = null;
+				int rank = 0;
+				while (true) {
+					TopDocs results = view.searchAfter(after, query, hitsPerPage);
+					if (after == null) {
+						System.out.println(results.totalHits + " total matching documents in " + view.size() + " shards");
+					}
+					for (ScoreDoc hit : results.scoreDocs) {
+						rank++;
+						if (raw) {
+							System.out.println("shard=" + hit.shardIndex + " doc=" + hit.doc + " score=" + hit.score);
+						} else {
+							String path = view.doc(hit).get("path");
+							System.out.println(rank + ". " + (path != null ? path : "No path for this document"));
+						}
+					}
+					if (!interactive || results.scoreDocs.length < hitsPerPage || rank >= results.totalHits) {
+						break;
+					}
+					System.out.println("Press (n)ext page or (q)uit.");
+					String command = in.readLine();
+					if (command == null || command.length() == 0 || command.charAt(0) != 'n') {
+						break;
+					}
+					after = results.scoreDocs[results.scoreDocs.length - 1];
+				}
+			} finally {
+				shards.release(view);
+			}
 
 			if (queryString != null) {
 				break;
 			}
 		}
-		reader.close();
+		System.out.println(parser.summary());
+	}
+
+
+	/**
+	 * 수정일이 가장 최근인 결과 hitsPerPage 건을 출력한다.
+	 * 색인이 -sortByModified 로 만들어졌으면 정렬된 세그먼트에서 상위 결과를 모은 뒤 수집을 멈춘다.
+	 * 
+	 * @param searcher
+	 * @param query
+	 * @param hitsPerPage
+	 * @param raw
+	 * @param fields 읽어서 출력할 stored field. null 이면 path 를 출력한다.
+	 * @return 검색 시간(ns). 결과 출력 시간은 포함하지 않는다.
+	 * @throws IOException
+	 */
+	public static long doNewestSearch(IndexSearcher searcher, Query query, int hitsPerPage, boolean raw,
+			StoredFieldLoader fields) throws IOException {
+		long begin = System.nanoTime();
+		TopDocs results = ModifiedSort.search(searcher, query, hitsPerPage);
+		long tookNanos = System.nanoTime() - begin;
+		ScoreDoc[] hits = results.scoreDocs;
+		System.out.println(hits.length + " newest of at least " + results.totalHits + " matching documents");
+
+		StoredFieldLoader loader = fields != null ? fields : new StoredFieldLoader("path");
+		Document[] docs = raw ? null : loader.load(searcher, hits);
+		for (int i = 0; i < hits.length; i++) {
+			long modified = (Long) ((FieldDoc) hits[i]).fields[0];
+			if (raw) {
+				System.out.println("doc=" + hits[i].doc + " modified=" + modified);
+				continue;
+			}
+			printFields(i + 1, docs[i], loader);
+			System.out.println("   Modified: " + new Date(modified));
+		}
+		return tookNanos;
+	}
+
+
+	/**
+	 * 지정한 필드만 읽은 문서를 출력한다. path 는 번호와 같은 줄에, 나머지 필드는 다음 줄부터 출력한다.
+	 */
+	private static void printFields(int rank, Document doc, StoredFieldLoader fields) {
+		if (fields.getFields().contains("path")) {
+			String path = doc.get("path");
+			System.out.println(rank + ". " + (path != null ? path : "No path for this document"));
+		} else {
+			System.out.println(rank + ".");
+		}
+		for (String field : fields.getFields()) {
+			if ("path".equals(field)) {
+				continue;
+			}
+			for (String value : doc.getValues(field)) {
+				System.out.println("   " + Character.toUpperCase(field.charAt(0)) + field.substring(1) + ": " + value);
+			}
+		}
 	}
 
 
@@ -173,101 +777,144 @@ public class SearchFiles {
 	 */
 	public static void doPagingSearch(BufferedReader in, IndexSearcher searcher, 
 			Query query, int hitsPerPage, boolean raw, boolean interactive) throws IOException {
+		doPagingSearch(in, searcher, query, hitsPerPage, raw, interactive, PageCursor.FIRST, null, null);
+	}
 
-		// 5페이지에 해당하는 정보만 조회한다.
-		TopDocs results = searcher.search(query, 5 * hitsPerPage);
-		
-		// 결과 Score 정보
-		ScoreDoc[] hits = results.scoreDocs;
+
+	/**
+	 * cursor 가 가리키는 페이지부터 검색작업을 수행한다.
+	 * <p>
+	 * 페이지마다 {@link IndexSearcher#searchAfter} 로 hitsPerPage 건만 조회하므로 깊은 페이지도
+	 * 첫 페이지와 같은 비용이 든다. 이미 지나간 페이지의 cursor 는 기억해두었다가 이전 페이지로 돌아갈때 사용한다.
+	 * 
+	 * @param in
+	 * @param searcher
+	 * @param query
+	 * @param hitsPerPage
+	 * @param raw
+	 * @param interactive
+	 * @param start 처음 출력할 페이지
+	 * @param cache 페이지 결과 캐시. 없으면 null
+	 * @param fields 읽어서 출력할 stored field. null 이면 모든 stored field 를 읽고 path 와 title 을 출력한다.
+	 * @return 처음 출력한 페이지의 검색 시간(ns). 결과 출력과 사용자 입력을 기다린 시간은 포함하지 않는다.
+	 * @throws IOException
+	 */
+	public static long doPagingSearch(BufferedReader in, IndexSearcher searcher, Query query, int hitsPerPage,
+			boolean raw, boolean interactive, PageCursor start, QueryResultCache cache, StoredFieldLoader fields)
+			throws IOException {
+
+		// 페이지 번호별 cursor. 첫번째 페이지는 항상 알고 있다.
+		TreeMap<Integer, PageCursor> cursors = new TreeMap<>();
+		cursors.put(0, PageCursor.FIRST);
+		cursors.put(start.getPage(), start);
+
+		PageCursor cursor = start;
+		long begin = System.nanoTime();
+		TopDocs results = searchPage(searcher, cache, query, cursor, hitsPerPage);
+		long tookNanos = System.nanoTime() - begin;
 
 		// 결과 건수
 		int numTotalHits = results.totalHits;
 		System.out.println(numTotalHits + " total matching documents");
 
-		int start = 0;
-		int end = Math.min(numTotalHits, hitsPerPage);
-
 		while (true) {
-			if (end > hits.length) {
-				System.out.println("Only results 1 - " + hits.length + " of " + numTotalHits
-								+ " total matching documents collected.");
-				System.out.println("Collect more (y/n) ?");
-				String line = in.readLine();
-				if (line.length() == 0 || line.charAt(0) == 'n') {
-					break;
-				}
+			// 결과 Score 정보
+			ScoreDoc[] hits = results.scoreDocs;
+			int offset = cursor.getPage() * hitsPerPage;
 
-				hits = searcher.search(query, numTotalHits).scoreDocs;
+			PageCursor next = cursor.next(results);
+			if (next != null) {
+				cursors.put(next.getPage(), next);
 			}
 
-			end = Math.min(hits.length, start + hitsPerPage);
+			// 필드를 지정하면 페이지의 문서들을 docID 순서로 한번에 읽는다.
+			Document[] docs = !raw && fields != null ? fields.load(searcher, hits) : null;
 
 			// 결과 문서를 출력한다.
-			for (int i = start; i < end; i++) {
+			for (int i = 0; i < hits.length; i++) {
 				if (raw) {
 					System.out.println("doc=" + hits[i].doc + " score=" + hits[i].score);
 					continue;
 				}
 
+				if (docs != null) {
+					printFields(offset + i + 1, docs[i], fields);
+					continue;
+				}
+
 				// Document 객체 조회
 				Document doc = searcher.doc(hits[i].doc);
 				String path = doc.get("path");
 				if (path != null) {
-					System.out.println((i + 1) + ". " + path);
+					System.out.println((offset + i + 1) + ". " + path);
 					String title = doc.get("title");
 					if (title != null) {
 						System.out.println("   Title: " + doc.get("title"));
 					}
 				} else {
-					System.out.println((i + 1) + ". " + "No path for this document");
+					System.out.println((offset + i + 1) + ". " + "No path for this document");
 				}
 			}
 
-			if (!interactive || end == 0) {
+			boolean hasNext = next != null && offset + hits.length < numTotalHits;
+			if (!interactive || hits.length == 0) {
+				// 다음 페이지를 이어서 조회할 수 있도록 cursor 를 출력한다.
+				if (hasNext) {
+					System.out.println("Next page: -after " + next.toToken());
+				}
 				break;
 			}
 
-			if (numTotalHits >= end) {
-				boolean quit = false;
-				while (true) {
-					System.out.print("Press ");
-					if (start - hitsPerPage >= 0) {
-						System.out.print("(p)revious page, ");
-					}
-					if (start + hitsPerPage < numTotalHits) {
-						System.out.print("(n)ext page, ");
-					}
-					System.out.println("(q)uit or enter number to jump to a page.");
+			int page = -1;
+			while (true) {
+				System.out.print("Press ");
+				if (cursor.getPage() > 0) {
+					System.out.print("(p)revious page, ");
+				}
+				if (hasNext) {
+					System.out.print("(n)ext page, ");
+				}
+				System.out.println("(q)uit or enter number to jump to a page.");
 
-					String line = in.readLine();
-					if (line.length() == 0 || line.charAt(0) == 'q') {
-						quit = true;
-						break;
-					}
-					if (line.charAt(0) == 'p') {
-						start = Math.max(0, start - hitsPerPage);
-						break;
-					} else if (line.charAt(0) == 'n') {
-						if (start + hitsPerPage < numTotalHits) {
-							start += hitsPerPage;
-						}
+				String line = in.readLine();
+				if (line == null || line.length() == 0 || line.charAt(0) == 'q') {
+					break;
+				}
+				if (line.charAt(0) == 'p') {
+					page = Math.max(0, cursor.getPage() - 1);
+					break;
+				} else if (line.charAt(0) == 'n') {
+					page = hasNext ? cursor.getPage() + 1 : cursor.getPage();
+					break;
+				} else {
+					int target = Integer.parseInt(line) - 1;
+					if (target >= 0 && target * hitsPerPage < numTotalHits) {
+						page = target;
 						break;
 					} else {
-						int page = Integer.parseInt(line);
-						if ((page - 1) * hitsPerPage < numTotalHits) {
-							start = (page - 1) * hitsPerPage;
-							break;
-						} else {
-							System.out.println("No such page");
-						}
+						System.out.println("No such page");
 					}
 				}
-				if (quit) {
+			}
+			if (page < 0) {
+				break;
+			}
+
+			// 가장 가까운 이전 cursor 에서 한 페이지씩 이동한다.
+			Map.Entry<Integer, PageCursor> known = cursors.floorEntry(page);
+			cursor = known.getValue();
+			results = searchPage(searcher, cache, query, cursor, hitsPerPage);
+			while (cursor.getPage() < page) {
+				PageCursor following = cursor.next(results);
+				if (following == null) {
 					break;
 				}
-				end = Math.min(numTotalHits, start + hitsPerPage);
+				cursors.put(following.getPage(), following);
+				cursor = following;
+				results = searchPage(searcher, cache, query, cursor, hitsPerPage);
 			}
 		}
+		return tookNanos;
 	}
 	
 
@@ -0,0 +1,185 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 오래 실행되는 검색 서비스. {@link SearcherManager} 를 감싸서 주기적으로 새 commit 을 확인하고 Searcher 를 교체한다.
+ * <p>
+ * 새 Searcher 는 {@link SearcherFactory} 가 만들고 준비(warm-up)까지 끝낸 뒤에 공개되므로
+ * 교체 직후의 검색이 준비되지 않은 Searcher 를 만나지 않는다.
+ * 검색할때는 {@link #acquire()} 로 받은 Searcher 를 사용하고 끝나면 반드시 {@link #release(IndexSearcher)} 한다.
+ * 
+ * <pre>
+ * IndexSearcher searcher = service.acquire();
+ * try {
+ * 	...
+ * } finally {
+ * 	service.release(searcher);
+ * }
+ * </pre>
+ */
+public class SearchService implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SearchService.class);
+
+	private final SearcherManager manager;
+	private final ScheduledExecutorService refresher;
+	private final AtomicLong refreshes = new AtomicLong();
+	private final AtomicLong failedRefreshes = new AtomicLong();
+
+	/**
+	 * 디렉토리의 commit 을 검색한다.
+	 * 
+	 * @param dir
+	 * @param factory 새 Searcher 를 만들고 준비한다. null 이면 기본 Searcher 를 사용한다.
+	 * @param refreshMillis 새 commit 을 확인하는 주기 (ms). 0 이하이면 {@link #maybeRefresh()} 를 직접 호출해야 한다.
+	 * @throws IOException
+	 */
+	public SearchService(Directory dir, SearcherFactory factory, long refreshMillis) throws IOException {
+		this(new SearcherManager(dir, factory), refreshMillis);
+	}
+
+	/**
+	 * Writer 의 아직 commit 되지 않은 변경까지 검색한다. (Near Real Time)
+	 * 
+	 * @param writer
+	 * @param factory 새 Searcher 를 만들고 준비한다. null 이면 기본 Searcher 를 사용한다.
+	 * @param refreshMillis 변경을 확인하는 주기 (ms). 0 이하이면 {@link #maybeRefresh()} 를 직접 호출해야 한다.
+	 * @throws IOException
+	 */
+	public SearchService(IndexWriter writer, SearcherFactory factory, long refreshMillis) throws IOException {
+		this(new SearcherManager(writer, true, factory), refreshMillis);
+	}
+
+	private SearchService(SearcherManager manager, long refreshMillis) {
+		this.manager = manager;
+		manager.addListener(new ReferenceManager.RefreshListener() {
+			@Override
+			public void beforeRefresh() {
+			}
+
+			@Override
+			public void afterRefresh(boolean didRefresh) {
+				if (didRefresh) {
+					refreshes.incrementAndGet();
+				}
+			}
+		});
+		if (refreshMillis > 0) {
+			refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "SearchService refresh");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			refresher.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						maybeRefresh();
+					} catch (IOException e) {
+						// 다음 주기에 다시 시도한다. 그동안은 이전 Searcher 로 검색한다.
+						failedRefreshes.incrementAndGet();
+						LOG.warn("refresh failed", e);
+					}
+				}
+			}, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+		} else {
+			refresher = null;
+		}
+	}
+
+	/**
+	 * 현재 Searcher 를 얻는다. 사용이 끝나면 반드시 {@link #release(IndexSearcher)} 해야 한다.
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	public IndexSearcher acquire() throws IOException {
+		return manager.acquire();
+	}
+
+	/**
+	 * {@link #acquire()} 로 얻은 Searcher 를 반환한다.
+	 * 
+	 * @param searcher
+	 * @throws IOException
+	 */
+	public void release(IndexSearcher searcher) throws IOException {
+		manager.release(searcher);
+	}
+
+	/**
+	 * 새 commit 이 있으면 Searcher 를 교체한다. 다른 스레드가 교체 중이면 기다리지 않는다.
+	 * 
+	 * @return 교체했거나 바꿀 것이 없으면 true
+	 * @throws IOException
+	 */
+	public boolean maybeRefresh() throws IOException {
+		return manager.maybeRefresh();
+	}
+
+	/** Searcher 를 교체한 횟수 */
+	public long getRefreshCount() {
+		return refreshes.get();
+	}
+
+	/** 교체에 실패한 횟수 */
+	public long getFailedRefreshCount() {
+		return failedRefreshes.get();
+	}
+
+	/** 감싸고 있는 SearcherManager. 다른 Lucene 도구와 함께 사용할때 쓴다. */
+	public SearcherManager getManager() {
+		return manager;
+	}
+
+	/** 주기적인 교체를 멈추고 Searcher 를 닫는다. 사용 중인 Searcher 는 반환될때 닫힌다. */
+	@Override
+	public void close() throws IOException {
+		if (refresher != null) {
+			refresher.shutdown();
+			try {
+				refresher.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		manager.close();
+	}
+
+}
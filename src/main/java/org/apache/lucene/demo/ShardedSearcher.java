@@ -0,0 +1,371 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermContext;
+import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermStatistics;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+/**
+ * 여러 shard 색인에 같은 쿼리를 병렬로 실행하고 결과를 {@link TopDocs#merge} 로 합치는 Searcher.
+ * <p>
+ * shard 마다 점수를 따로 계산하면 단어 통계(docFreq 등)가 shard 별로 달라서 점수를 비교할 수 없다.
+ * 여기서는 모든 shard 를 묶은 {@link MultiReader} 의 통계를 각 shard 의 Searcher 가 사용하도록 해서
+ * 하나의 색인을 검색한 것과 같은 점수를 만든다. 단어 통계는 쿼리마다 한번만 구해서 모든 shard 가 나누어 쓴다.
+ * <p>
+ * shard 는 실행 중에 추가하거나 제거할 수 있다. 검색은 {@link #acquire()} 로 받은 {@link View} 에서 하고,
+ * 끝나면 {@link #release(View)} 한다. 제거된 shard 는 그 shard 를 사용하는 View 가 모두 반환된 뒤에 닫힌다.
+ */
+public class ShardedSearcher implements Closeable {
+
+	private final ExecutorService executor;
+
+	/** shard 이름별 Reader. 이 객체가 Reader 의 참조 하나를 갖는다. */
+	private final Map<String, DirectoryReader> shards = new LinkedHashMap<>();
+
+	/** 현재 shard 구성 */
+	private View current;
+
+	/**
+	 * @param executor shard 를 검색할 스레드 풀
+	 */
+	public ShardedSearcher(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * IndexFiles -shards 로 만든 색인 디렉토리의 모든 shard 를 연다.
+	 * 
+	 * @param indexPath 색인 디렉토리
+	 * @param executor
+	 * @return
+	 * @throws IOException
+	 */
+	public static ShardedSearcher open(File indexPath, ExecutorService executor) throws IOException {
+		ShardedSearcher searcher = new ShardedSearcher(executor);
+		for (int i = 0; IndexShards.shardPath(indexPath, i).isDirectory(); i++) {
+			searcher.addShard(IndexShards.shardPath(indexPath, i));
+		}
+		return searcher;
+	}
+
+	/**
+	 * shard 디렉토리를 열어서 추가한다.
+	 * 
+	 * @param path shard 색인 디렉토리. 경로가 shard 이름이 된다.
+	 * @throws IOException
+	 */
+	public void addShard(File path) throws IOException {
+		final Directory dir = FSDirectory.open(path);
+		DirectoryReader reader;
+		try {
+			reader = DirectoryReader.open(dir);
+		} catch (IOException e) {
+			dir.close();
+			throw e;
+		}
+		// Reader 가 닫히면 디렉토리도 닫는다.
+		reader.addReaderClosedListener(new IndexReader.ReaderClosedListener() {
+			@Override
+			public void onClose(IndexReader reader) {
+				try {
+					dir.close();
+				} catch (IOException e) {
+					// 읽기만 한 디렉토리이므로 무시한다.
+				}
+			}
+		});
+		addShard(path.getPath(), reader);
+	}
+
+	/**
+	 * Reader 를 shard 로 추가한다. Reader 는 이 객체가 소유하고 제거될때 닫는다.
+	 * 
+	 * @param name shard 이름
+	 * @param reader
+	 * @throws IOException
+	 */
+	public synchronized void addShard(String name, DirectoryReader reader) throws IOException {
+		if (shards.containsKey(name)) {
+			reader.close();
+			throw new IllegalArgumentException("shard already exists: " + name);
+		}
+		shards.put(name, reader);
+		publish();
+	}
+
+	/**
+	 * shard 를 제거한다. 진행 중인 검색은 제거되기 전의 shard 구성으로 끝난다.
+	 * 
+	 * @param name shard 이름
+	 * @return shard 가 있었으면 true
+	 * @throws IOException
+	 */
+	public synchronized boolean removeShard(String name) throws IOException {
+		DirectoryReader reader = shards.remove(name);
+		if (reader == null) {
+			return false;
+		}
+		publish();
+		reader.decRef();
+		return true;
+	}
+
+	/** shard 이름 목록 */
+	public synchronized List<String> getShardNames() {
+		return new ArrayList<>(shards.keySet());
+	}
+
+	/** 새 shard 구성을 만들고 이전 구성은 사용이 끝나면 닫히도록 한다. */
+	private void publish() throws IOException {
+		View previous = current;
+		current = shards.isEmpty() ? null : new View(shards);
+		if (previous != null) {
+			previous.multiReader.decRef();
+		}
+	}
+
+	/**
+	 * 현재 shard 구성을 얻는다. 사용이 끝나면 반드시 {@link #release(View)} 해야 한다.
+	 * 
+	 * @return
+	 * @throws IllegalStateException shard 가 없는 경우
+	 */
+	public synchronized View acquire() {
+		if (current == null) {
+			throw new IllegalStateException("no shards");
+		}
+		current.multiReader.incRef();
+		return current;
+	}
+
+	/**
+	 * {@link #acquire()} 로 얻은 shard 구성을 반환한다.
+	 * 
+	 * @param view
+	 * @throws IOException
+	 */
+	public void release(View view) throws IOException {
+		view.multiReader.decRef();
+	}
+
+	/** 모든 shard 를 닫는다. 사용 중인 View 는 반환될때 닫힌다. */
+	@Override
+	public synchronized void close() throws IOException {
+		for (String name : new ArrayList<>(shards.keySet())) {
+			removeShard(name);
+		}
+	}
+
+	/**
+	 * 검색 시점의 shard 구성. 결과의 {@link ScoreDoc#shardIndex} 는 이 구성의 shard 순서이다.
+	 */
+	public final class View {
+		private final String[] names;
+		private final MultiReader multiReader;
+		private final IndexSearcher global;
+		private final IndexSearcher[] searchers;
+
+		View(Map<String, DirectoryReader> shards) throws IOException {
+			names = shards.keySet().toArray(new String[shards.size()]);
+			DirectoryReader[] readers = shards.values().toArray(new DirectoryReader[shards.size()]);
+			// closeSubReaders=false 이면 MultiReader 가 각 Reader 의 참조를 하나씩 갖는다.
+			multiReader = new MultiReader(readers, false);
+			global = new IndexSearcher(multiReader);
+			searchers = new IndexSearcher[readers.length];
+			for (int i = 0; i < readers.length; i++) {
+				searchers[i] = new IndexSearcher(readers[i]);
+			}
+		}
+
+		/** shard 수 */
+		public int size() {
+			return names.length;
+		}
+
+		/** shard 이름 */
+		public String getShardName(int shardIndex) {
+			return names[shardIndex];
+		}
+
+		/** 모든 shard 의 문서 수 */
+		public int numDocs() {
+			return multiReader.numDocs();
+		}
+
+		/**
+		 * 모든 shard 에서 상위 n 건을 조회한다.
+		 * 
+		 * @param query
+		 * @param n
+		 * @return shardIndex 가 설정된 결과
+		 * @throws IOException
+		 */
+		public TopDocs search(Query query, int n) throws IOException {
+			return searchAfter(null, query, n);
+		}
+
+		/**
+		 * after 다음 결과부터 n 건을 조회한다. 결과의 순서는 score 역순, 같으면 shardIndex, docID 순이다.
+		 * <p>
+		 * 각 shard 에는 그 shard 에서 after 다음에 오는 위치를 계산해서 searchAfter 로 n 건만 요청하므로
+		 * 페이지가 깊어도 shard 마다 n 건만 모은다.
+		 * 
+		 * @param after 이전 페이지의 마지막 결과. 첫 페이지이면 null
+		 * @param query
+		 * @param n
+		 * @return
+		 * @throws IOException
+		 */
+		public TopDocs searchAfter(ScoreDoc after, Query query, final int n) throws IOException {
+			// 쿼리를 모든 shard 에 대해 한번만 rewrite 하고, 단어 통계도 shard 로 나누어주기 전에 한번만 구한다.
+			final Query rewritten = global.rewrite(query);
+			Map<Term, TermStatistics> termStats = termStatistics(rewritten);
+
+			List<Future<TopDocs>> futures = new ArrayList<>(searchers.length);
+			for (int i = 0; i < searchers.length; i++) {
+				final IndexSearcher searcher = new ShardIndexSearcher(searchers[i].getIndexReader(), global, termStats);
+				final ScoreDoc shardAfter = shardAfter(after, i);
+				futures.add(executor.submit(new Callable<TopDocs>() {
+					@Override
+					public TopDocs call() throws IOException {
+						return shardAfter == null ? searcher.search(rewritten, n) : searcher.searchAfter(shardAfter, rewritten, n);
+					}
+				}));
+			}
+
+			TopDocs[] shardHits = new TopDocs[futures.size()];
+			for (int i = 0; i < shardHits.length; i++) {
+				try {
+					shardHits[i] = futures.get(i).get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("interrupted while searching shard " + names[i], e);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new RuntimeException(e.getCause());
+				}
+			}
+			return TopDocs.merge(null, n, shardHits);
+		}
+
+		/**
+		 * rewrite 된 쿼리의 단어들의 통계를 모든 shard 에서 구한다.
+		 * 단어를 꺼낼 수 없는 쿼리는 빈 맵을 반환하고, shard 에서 필요할때 구한다.
+		 */
+		private Map<Term, TermStatistics> termStatistics(Query rewritten) throws IOException {
+			Set<Term> terms = new HashSet<>();
+			try {
+				rewritten.extractTerms(terms);
+			} catch (UnsupportedOperationException e) {
+				// 점수에 단어 통계를 사용하지 않는 쿼리이다.
+			}
+			Map<Term, TermStatistics> termStats = new HashMap<>();
+			for (Term term : terms) {
+				termStats.put(term, global.termStatistics(term, TermContext.build(global.getTopReaderContext(), term)));
+			}
+			return termStats;
+		}
+
+		/**
+		 * 전체 순서에서 after 다음에 오는 결과를 shard 안에서 찾기 위한 위치.
+		 * after 보다 앞선 shard 는 같은 점수의 문서가 이미 모두 나왔고, 뒤의 shard 는 아직 하나도 나오지 않았다.
+		 * (IndexSearcher 는 maxDoc 이상의 docID 를 받지 않으므로 마지막 문서를 사용한다.)
+		 */
+		private ScoreDoc shardAfter(ScoreDoc after, int shardIndex) {
+			if (after == null) {
+				return null;
+			}
+			if (shardIndex < after.shardIndex) {
+				return new ScoreDoc(searchers[shardIndex].getIndexReader().maxDoc() - 1, after.score);
+			} else if (shardIndex > after.shardIndex) {
+				return new ScoreDoc(-1, after.score);
+			}
+			return new ScoreDoc(after.doc, after.score);
+		}
+
+		/**
+		 * 결과 문서를 읽는다.
+		 * 
+		 * @param hit {@link #search} 의 결과
+		 * @return
+		 * @throws IOException
+		 */
+		public Document doc(ScoreDoc hit) throws IOException {
+			return searchers[hit.shardIndex].doc(hit.doc);
+		}
+	}
+
+	/**
+	 * 쿼리 하나를 shard 에서 검색하는 Searcher. 단어 통계는 모든 shard 에서 미리 구한 값을 사용한다.
+	 */
+	private static final class ShardIndexSearcher extends IndexSearcher {
+		private final IndexSearcher global;
+		private final Map<Term, TermStatistics> termStats;
+
+		ShardIndexSearcher(IndexReader shard, IndexSearcher global, Map<Term, TermStatistics> termStats) {
+			super(shard);
+			this.global = global;
+			this.termStats = termStats;
+		}
+
+		@Override
+		public TermStatistics termStatistics(Term term, TermContext context) throws IOException {
+			TermStatistics stats = termStats.get(term);
+			if (stats == null) {
+				// 미리 구하지 못한 단어이다.
+				stats = global.termStatistics(term, TermContext.build(global.getTopReaderContext(), term));
+			}
+			return stats;
+		}
+
+		@Override
+		public CollectionStatistics collectionStatistics(String field) throws IOException {
+			return global.collectionStatistics(field);
+		}
+	}
+
+}
@@ -0,0 +1,138 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+
+/**
+ * 세그먼트들을 여러 slice 로 묶어서 executor 에서 병렬로 검색하는 Searcher.
+ * <p>
+ * 기본 {@link IndexSearcher} 는 세그먼트 하나마다 작업 하나를 만들기 때문에 작은 세그먼트가 많은
+ * 색인에서는 작업 생성 비용이 검색 시간보다 커진다. 여기서는 큰 세그먼트부터 순서대로
+ * slice 하나에 최대 {@link #MAX_DOCS_PER_SLICE} 문서, {@link #MAX_SEGMENTS_PER_SLICE} 세그먼트까지 묶는다.
+ */
+public class SlicedIndexSearcher extends IndexSearcher {
+
+	/** slice 하나에 묶을 최대 문서 수 */
+	public static final int MAX_DOCS_PER_SLICE = 250000;
+
+	/** slice 하나에 묶을 최대 세그먼트 수 */
+	public static final int MAX_SEGMENTS_PER_SLICE = 5;
+
+	/**
+	 * @param reader
+	 * @param executor slice 를 검색할 스레드 풀
+	 */
+	public SlicedIndexSearcher(IndexReader reader, ExecutorService executor) {
+		super(reader, executor);
+	}
+
+	/**
+	 * 상위 클래스의 생성자에서 호출되므로 인스턴스 필드를 사용하지 않는다.
+	 */
+	@Override
+	protected LeafSlice[] slices(List<AtomicReaderContext> leaves) {
+		List<List<AtomicReaderContext>> groups = group(leaves);
+		LeafSlice[] slices = new LeafSlice[groups.size()];
+		for (int i = 0; i < slices.length; i++) {
+			List<AtomicReaderContext> group = groups.get(i);
+			slices[i] = new LeafSlice(group.toArray(new AtomicReaderContext[group.size()]));
+		}
+		return slices;
+	}
+
+	/**
+	 * 세그먼트를 큰 것부터 순서대로 slice 에 채운다.
+	 * slice 안에서는 다시 docBase 순서로 정렬한다. 점수가 같은 문서는 docID 순서로 결과에 들어가야 하는데
+	 * slice 하나는 collector 하나로 검색하므로 세그먼트 순서가 바뀌면 직렬 검색과 결과가 달라진다.
+	 * 
+	 * @param leaves
+	 * @return slice 별 세그먼트 목록
+	 */
+	static List<List<AtomicReaderContext>> group(List<AtomicReaderContext> leaves) {
+		List<AtomicReaderContext> sorted = new ArrayList<>(leaves);
+		Collections.sort(sorted, new Comparator<AtomicReaderContext>() {
+			@Override
+			public int compare(AtomicReaderContext a, AtomicReaderContext b) {
+				return Integer.compare(b.reader().maxDoc(), a.reader().maxDoc());
+			}
+		});
+
+		List<List<AtomicReaderContext>> groups = new ArrayList<>();
+		List<AtomicReaderContext> current = null;
+		long docs = 0;
+		for (AtomicReaderContext leaf : sorted) {
+			int maxDoc = leaf.reader().maxDoc();
+			if (current == null || docs + maxDoc > MAX_DOCS_PER_SLICE || current.size() >= MAX_SEGMENTS_PER_SLICE) {
+				current = new ArrayList<>();
+				groups.add(current);
+				docs = 0;
+			}
+			current.add(leaf);
+			docs += maxDoc;
+		}
+		for (List<AtomicReaderContext> group : groups) {
+			Collections.sort(group, new Comparator<AtomicReaderContext>() {
+				@Override
+				public int compare(AtomicReaderContext a, AtomicReaderContext b) {
+					return Integer.compare(a.ord, b.ord);
+				}
+			});
+		}
+		return groups;
+	}
+
+	/**
+	 * 검색용 고정 크기 스레드 풀을 생성한다. 스레드는 daemon 이므로 종료를 막지 않는다.
+	 * 
+	 * @param numThreads
+	 * @return
+	 */
+	public static ExecutorService newExecutor(int numThreads) {
+		if (numThreads <= 0) {
+			throw new IllegalArgumentException("numThreads must be > 0 (got " + numThreads + ")");
+		}
+		return Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "SearchFiles searcher " + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/** slice 수 */
+	public int getSliceCount() {
+		return group(getIndexReader().leaves()).size();
+	}
+
+}
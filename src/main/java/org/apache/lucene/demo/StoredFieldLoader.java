@@ -0,0 +1,106 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+
+/**
+ * 검색 결과 한 페이지의 stored field 중 지정한 필드만 읽는다.
+ * <p>
+ * {@link IndexSearcher#doc(int)} 는 모든 stored field 를 디코딩하지만, 여기서는
+ * {@link DocumentStoredFieldVisitor} 로 필요한 필드만 Document 에 담는다.
+ * 또한 페이지의 결과를 docID 순서로 읽어서 세그먼트와 압축 블록을 앞에서 뒤로 한번만 지나가도록 한다.
+ */
+public class StoredFieldLoader {
+
+	private final Set<String> fields;
+
+	/**
+	 * @param fields 읽을 필드 이름. 출력 순서로 사용된다.
+	 */
+	public StoredFieldLoader(String... fields) {
+		if (fields.length == 0) {
+			throw new IllegalArgumentException("at least one field is required");
+		}
+		this.fields = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(fields)));
+	}
+
+	/**
+	 * 쉼표로 구분된 필드 목록으로 생성한다. (예: "path,title")
+	 * 
+	 * @param fieldList
+	 * @return
+	 */
+	public static StoredFieldLoader parse(String fieldList) {
+		List<String> fields = new ArrayList<>();
+		for (String field : fieldList.split(",")) {
+			field = field.trim();
+			if (field.length() > 0) {
+				fields.add(field);
+			}
+		}
+		return new StoredFieldLoader(fields.toArray(new String[fields.size()]));
+	}
+
+	/** 읽을 필드 이름 */
+	public Set<String> getFields() {
+		return fields;
+	}
+
+	/**
+	 * 결과들의 지정한 필드를 docID 순서로 읽는다.
+	 * 
+	 * @param searcher
+	 * @param hits 한 페이지의 결과
+	 * @return hits 와 같은 순서의 Document. 지정한 필드만 들어 있다.
+	 * @throws IOException
+	 */
+	public Document[] load(IndexSearcher searcher, final ScoreDoc[] hits) throws IOException {
+		Integer[] order = new Integer[hits.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Integer.compare(hits[a].doc, hits[b].doc);
+			}
+		});
+
+		Document[] docs = new Document[hits.length];
+		for (int i : order) {
+			DocumentStoredFieldVisitor visitor = new DocumentStoredFieldVisitor(fields);
+			searcher.doc(hits[i].doc, visitor);
+			docs[i] = visitor.getDocument();
+		}
+		return docs;
+	}
+
+}
@@ -0,0 +1,175 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.TopDocs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 새 Searcher 를 공개하기 전에 쿼리들을 실행해서 준비하는 {@link SearcherFactory}.
+ * <p>
+ * 새 세그먼트의 norms, doc values, term dictionary 와 OS 페이지 캐시가 첫 검색에서 올라오므로
+ * 교체 직후의 검색이 느려지지 않도록 미리 읽어둔다.
+ * 준비할 쿼리는 SearchFiles -queries 형식(한 줄에 쿼리 하나)의 쿼리 로그에서 최근 쿼리를 골라 사용할 수 있다.
+ * 검색 스레드 풀을 지정하면 {@link SlicedIndexSearcher} 를 만든다.
+ */
+public class WarmingSearcherFactory extends SearcherFactory {
+
+	private static final Logger LOG = LoggerFactory.getLogger(WarmingSearcherFactory.class);
+
+	/** 쿼리마다 조회하는 결과 수. 상위 결과의 저장 필드까지 읽어둔다. */
+	private static final int WARM_HITS = 10;
+
+	private final ExecutorService executor;
+	private final List<Query> warmQueries;
+	private final String field;
+
+	private volatile long warmCount;
+	private volatile long lastWarmMillis;
+
+	/**
+	 * @param executor 세그먼트를 병렬로 검색할 스레드 풀. null 이면 직렬로 검색한다.
+	 * @param warmQueries 새 Searcher 마다 실행할 쿼리
+	 */
+	public WarmingSearcherFactory(ExecutorService executor, List<Query> warmQueries) {
+		this(executor, warmQueries, null);
+	}
+
+	private WarmingSearcherFactory(ExecutorService executor, List<Query> warmQueries, String field) {
+		this.executor = executor;
+		this.warmQueries = Collections.unmodifiableList(new ArrayList<>(warmQueries));
+		this.field = field;
+	}
+
+	/**
+	 * 쿼리 로그의 최근 쿼리로 준비하는 Factory 를 만든다. 파싱할 수 없는 쿼리는 건너뛴다.
+	 * 
+	 * @param executor 세그먼트를 병렬로 검색할 스레드 풀. null 이면 직렬로 검색한다.
+	 * @param queries 한 줄에 쿼리 하나가 있는 쿼리 로그
+	 * @param sampleSize 사용할 쿼리 수
+	 * @param parser
+	 * @return
+	 * @throws IOException
+	 */
+	public static WarmingSearcherFactory fromQueryLog(ExecutorService executor, Path queries, int sampleSize,
+			QueryParsingService parser) throws IOException {
+		List<String> sample = recentQueries(queries, sampleSize);
+		List<Query> parsed = new ArrayList<>();
+		for (String line : sample) {
+			try {
+				parsed.add(parser.parse(line));
+			} catch (ParseException e) {
+				LOG.warn("skipping warm-up query {}: {}", line, e.getMessage());
+			}
+		}
+		LOG.info("loaded {} warm-up queries from {}: {}", parsed.size(), queries, sample);
+		return new WarmingSearcherFactory(executor, parsed, parser.getField());
+	}
+
+	/**
+	 * 쿼리 로그의 끝에서부터 서로 다른 쿼리를 최대 sampleSize 개 고른다.
+	 * 로그는 시간 순서로 쌓이므로 끝에 있는 쿼리가 최근 쿼리이다.
+	 * 
+	 * @param queries 한 줄에 쿼리 하나가 있는 쿼리 로그
+	 * @param sampleSize
+	 * @return 로그에 나온 순서
+	 * @throws IOException
+	 */
+	public static List<String> recentQueries(Path queries, int sampleSize) throws IOException {
+		List<String> lines = Files.readAllLines(queries, StandardCharsets.UTF_8);
+		Set<String> recent = new LinkedHashSet<>();
+		for (int i = lines.size() - 1; i >= 0 && recent.size() < sampleSize; i--) {
+			String line = lines.get(i).trim();
+			if (line.length() > 0) {
+				recent.add(line);
+			}
+		}
+		List<String> sample = new ArrayList<>(recent);
+		Collections.reverse(sample);
+		return sample;
+	}
+
+	/** 새 Searcher 마다 실행할 쿼리 */
+	public List<Query> getWarmQueries() {
+		return warmQueries;
+	}
+
+	/** 준비한 Searcher 수 */
+	public long getWarmCount() {
+		return warmCount;
+	}
+
+	/** 마지막 준비에 걸린 시간 (ms) */
+	public long getLastWarmMillis() {
+		return lastWarmMillis;
+	}
+
+	@Override
+	public IndexSearcher newSearcher(IndexReader reader) throws IOException {
+		IndexSearcher searcher = executor != null ? new SlicedIndexSearcher(reader, executor) : new IndexSearcher(reader);
+		if (!warmQueries.isEmpty()) {
+			long begin = System.nanoTime();
+			warm(searcher);
+			lastWarmMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+			warmCount++;
+			LOG.info("warmed searcher ({} segments, {} docs) with {} queries in {} ms", reader.leaves().size(),
+					reader.maxDoc(), warmQueries.size(), lastWarmMillis);
+		}
+		return searcher;
+	}
+
+	/**
+	 * Searcher 를 준비한다. 검색 결과의 상위 문서까지 읽어서 저장 필드도 올려둔다.
+	 * 
+	 * @param searcher 아직 공개되지 않은 Searcher
+	 * @throws IOException
+	 */
+	protected void warm(IndexSearcher searcher) throws IOException {
+		for (Query query : warmQueries) {
+			long begin = System.nanoTime();
+			TopDocs hits = searcher.search(query, WARM_HITS);
+			for (ScoreDoc hit : hits.scoreDocs) {
+				searcher.doc(hit.doc);
+			}
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("warm-up query {} ({} hits) in {} ms", field != null ? query.toString(field) : query,
+						hits.totalHits, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+			}
+		}
+	}
+
+}
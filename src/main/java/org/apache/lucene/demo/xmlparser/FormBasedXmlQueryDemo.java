@@ -35,12 +35,11 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.demo.SearchService;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
 import org.apache.lucene.document.TextField;
-import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.queryparser.xml.CorePlusExtensionsParser;
@@ -48,6 +47,7 @@ import org.apache.lucene.queryparser.xml.QueryTemplateManager;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.RAMDirectory;
 import org.apache.lucene.util.Version;
@@ -62,7 +62,7 @@ public class FormBasedXmlQueryDemo extends HttpServlet {
 
 	private QueryTemplateManager queryTemplateManager;
 	private CorePlusExtensionsParser xmlParser;
-	private IndexSearcher searcher;
+	private SearchService searchService;
 	private Analyzer analyzer = new StandardAnalyzer();
 
 	/** for instantiation by the servlet container */
@@ -124,16 +124,22 @@ public class FormBasedXmlQueryDemo extends HttpServlet {
 			Query query = xmlParser.getQuery(xmlQuery.getDocumentElement());
 
 			// Run the query
-			TopDocs topDocs = searcher.search(query, 10);
-
-			// and package the results and forward to JSP
-			if (topDocs != null) {
-				ScoreDoc[] sd = topDocs.scoreDocs;
-				Document[] results = new Document[sd.length];
-				for (int i = 0; i < results.length; i++) {
-					results[i] = searcher.doc(sd[i].doc);
-					request.setAttribute("results", results);
+			// 요청마다 Searcher 를 얻고 결과 문서를 읽은 뒤에 반환한다.
+			IndexSearcher searcher = searchService.acquire();
+			try {
+				TopDocs topDocs = searcher.search(query, 10);
+
+				// and package the results and forward to JSP
+				if (topDocs != null) {
+					ScoreDoc[] sd = topDocs.scoreDocs;
+					Document[] results = new Document[sd.length];
+					for (int i = 0; i < results.length; i++) {
+						results[i] = searcher.doc(sd[i].doc);
+						request.setAttribute("results", results);
+					}
 				}
+			} finally {
+				searchService.release(searcher);
 			}
 			
 			RequestDispatcher dispatcher = getServletContext().getRequestDispatcher("/index.jsp");
@@ -177,11 +183,25 @@ public class FormBasedXmlQueryDemo extends HttpServlet {
 		}
 		writer.close();
 
-		// 색인이 완료되면 searcher를 생성한다.
-		// open searcher
-		// this example never closes it reader!
-		IndexReader reader = DirectoryReader.open(rd);
-		searcher = new IndexSearcher(reader);
+		// 색인이 완료되면 검색 서비스를 생성한다.
+		// 색인이 바뀌지 않으므로 주기적인 교체는 하지 않는다. reader 는 destroy() 에서 닫는다.
+		searchService = new SearchService(rd, new SearcherFactory(), 0);
+	}
+
+
+	/**
+	 * Servlet Destroy 메소드 오버라이드
+	 */
+	@Override
+	public void destroy() {
+		try {
+			if (searchService != null) {
+				searchService.close();
+			}
+		} catch (IOException e) {
+			log("Error closing search service", e);
+		}
+		super.destroy();
 	}
 	
 }
@@ -0,0 +1,121 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+public class TestBatchSearcher extends LuceneTestCase {
+
+  private static Query query(String must, String should) {
+    BooleanQuery bq = new BooleanQuery();
+    bq.add(new TermQuery(new Term("contents", must)), Occur.MUST);
+    bq.add(new TermQuery(new Term("contents", should)), Occur.SHOULD);
+    return bq;
+  }
+
+  @Test
+  public void testMatchesSequentialSearch() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    int numDocs = atLeast(200);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(new TextField("contents", "w" + (i % 13) + " w" + (i % 7) + " s" + (i % 3), Field.Store.NO));
+      writer.addDocument(doc);
+      if (random().nextInt(50) == 0) {
+        writer.commit();
+      }
+    }
+    DirectoryReader reader = DirectoryReader.open(writer, true);
+    writer.close();
+    IndexSearcher searcher = new IndexSearcher(reader);
+
+    List<Query> queries = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      queries.add(query("w" + (i % 13), "s" + (i % 3)));
+    }
+    queries.add(new MatchAllDocsQuery());
+    // 같은 쿼리가 여러번 있어도 된다.
+    queries.add(query("w0", "s0"));
+
+    ExecutorService executor = SlicedIndexSearcher.newExecutor(3);
+    for (BatchSearcher batch : Arrays.asList(new BatchSearcher(null), new BatchSearcher(executor).setMaxGroupSize(4))) {
+      List<TopDocs> results = batch.search(searcher, queries, 10);
+      assertEquals(queries.size(), results.size());
+      for (int i = 0; i < queries.size(); i++) {
+        TopDocs expected = searcher.search(queries.get(i), 10);
+        TopDocs actual = results.get(i);
+        assertEquals(expected.totalHits, actual.totalHits);
+        assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+        for (int j = 0; j < expected.scoreDocs.length; j++) {
+          assertEquals(expected.scoreDocs[j].doc, actual.scoreDocs[j].doc);
+          assertEquals(expected.scoreDocs[j].score, actual.scoreDocs[j].score, 0f);
+        }
+      }
+    }
+    executor.shutdown();
+    reader.close();
+    dir.close();
+  }
+
+  @Test
+  public void testGroupsQueriesWithCommonTerms() throws Exception {
+    List<Query> queries = Arrays.asList(
+        query("a", "x"),
+        query("b", "y"),
+        query("c", "x"),
+        new TermQuery(new Term("contents", "y")),
+        new TermQuery(new Term("contents", "z")),
+        query("d", "x"));
+
+    List<int[]> groups = new BatchSearcher(null).group(queries);
+    assertEquals(3, groups.size());
+    assertArrayEquals(new int[] { 0, 2, 5 }, groups.get(0));
+    assertArrayEquals(new int[] { 1, 3 }, groups.get(1));
+    assertArrayEquals(new int[] { 4 }, groups.get(2));
+
+    // 그룹이 가득 차면 새 그룹을 만든다.
+    groups = new BatchSearcher(null).setMaxGroupSize(2).group(queries);
+    assertArrayEquals(new int[] { 0, 2 }, groups.get(0));
+    assertArrayEquals(new int[] { 1, 3 }, groups.get(1));
+    assertArrayEquals(new int[] { 4 }, groups.get(2));
+    assertArrayEquals(new int[] { 5 }, groups.get(3));
+  }
+
+}
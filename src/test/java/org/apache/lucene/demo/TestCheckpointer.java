@@ -0,0 +1,79 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
+import org.junit.Test;
+
+@SuppressCodecs("Lucene3x")
+public class TestCheckpointer extends LuceneTestCase {
+
+  @Test
+  public void testCompareFollowsWalkOrder() {
+    String sep = File.separator;
+    assertTrue(Checkpointer.compare("docs" + sep + "a", "docs" + sep + "a" + sep + "z.txt") < 0);
+    assertTrue(Checkpointer.compare("docs" + sep + "a" + sep + "z.txt", "docs" + sep + "b") < 0);
+    assertTrue(Checkpointer.compare("docs" + sep + "b", "docs" + sep + "a" + sep + "z.txt") > 0);
+    assertEquals(0, Checkpointer.compare("docs" + sep + "b", "docs" + sep + "b"));
+  }
+
+  @Test
+  public void testCheckpointAndResume() throws Exception {
+    File docs = createTempDir("docs");
+    File a = new File(docs, "a");
+    File b = new File(docs, "b");
+    assertTrue(a.mkdirs());
+    assertTrue(b.mkdirs());
+    File[] files = { new File(a, "1.txt"), new File(a, "2.txt"), new File(b, "3.txt") };
+    for (File file : files) {
+      Files.write(file.toPath(), file.getName().getBytes(StandardCharsets.UTF_8));
+    }
+
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, IndexFiles.newConfig(new MockAnalyzer(random()), true));
+    IndexShards shards = new IndexShards(writer);
+    Checkpointer checkpointer = new Checkpointer(shards, null, 1, 0, 0);
+    IndexFiles.indexDocs(new FileIndexer(shards, new IndexStats(), null).setCheckpointer(checkpointer), docs);
+
+    // 모든 파일마다 commit 되었으므로 중단되어도 마지막 파일이 cursor 로 남는다.
+    writer.rollback();
+    assertEquals(files[2].getPath(), Checkpointer.readCursor(dir));
+    DirectoryReader reader = DirectoryReader.open(dir);
+    assertEquals(3, reader.numDocs());
+    reader.close();
+
+    // cursor 이전의 파일과 디렉토리는 건너뛴다.
+    Checkpointer resumed = new Checkpointer(shards, files[1].getPath(), 1, 0, 0);
+    assertTrue(resumed.accept(docs, true));
+    assertTrue(resumed.accept(a, true));
+    assertFalse(resumed.accept(files[0], false));
+    assertFalse(resumed.accept(files[1], false));
+    assertTrue(resumed.accept(b, true));
+    assertTrue(resumed.accept(files[2], false));
+    dir.close();
+  }
+}
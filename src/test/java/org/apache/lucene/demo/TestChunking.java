@@ -0,0 +1,133 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
+import org.junit.Test;
+
+@SuppressCodecs("Lucene3x")
+public class TestChunking extends LuceneTestCase {
+
+  /** "w0 w1 w2 ..." 형태로 단어 하나가 정확히 4문자가 되도록 만든다. */
+  private static String words(int count) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      sb.append('w').append((char) ('a' + i % 26)).append((char) ('a' + i / 26 % 26)).append(' ');
+    }
+    return sb.toString();
+  }
+
+  private DirectoryReader index(Directory dir, File docs, MockAnalyzer analyzer, int maxTokens,
+      long chunkBytes, long maxBytes, OpenMode mode) throws Exception {
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(analyzer).setOpenMode(mode));
+    IndexFiles.indexDocs(new FileIndexer(writer, new IndexStats())
+        .setChunking(chunkBytes, maxBytes).setMaxTokens(maxTokens), docs);
+    writer.close();
+    return DirectoryReader.open(dir);
+  }
+
+  @Test
+  public void testLargeFileIsChunked() throws Exception {
+    File docs = createTempDir("docs");
+    File big = new File(docs, "big.txt");
+    Files.write(big.toPath(), words(100).getBytes(StandardCharsets.UTF_8));
+    Files.write(new File(docs, "small.txt").toPath(), words(2).getBytes(StandardCharsets.UTF_8));
+
+    // 40 바이트(10 단어) 단위로 청크를 나누면 big.txt 는 10개의 문서가 된다.
+    Directory dir = newDirectory();
+    DirectoryReader reader = index(dir, docs, new MockAnalyzer(random()), 0, 40, 0, OpenMode.CREATE);
+    IndexSearcher searcher = newSearcher(reader);
+    assertEquals(11, reader.numDocs());
+    assertEquals(10, searcher.search(new TermQuery(new Term("path", big.getPath())), 1).totalHits);
+    // 마지막 단어도 색인되어야 한다.
+    assertEquals(1, searcher.search(new TermQuery(new Term("contents", "wvd")), 1).totalHits);
+    reader.close();
+
+    // 다시 색인하면 기존 청크들이 모두 대체된다.
+    reader = index(dir, docs, new MockAnalyzer(random()), 0, 40, 0, OpenMode.CREATE_OR_APPEND);
+    assertEquals(11, reader.numDocs());
+    reader.close();
+    dir.close();
+  }
+
+  @Test
+  public void testCaps() throws Exception {
+    File docs = createTempDir("docs");
+    File big = new File(docs, "big.txt");
+    Files.write(big.toPath(), words(100).getBytes(StandardCharsets.UTF_8));
+
+    // 파일당 80 바이트(20 단어)까지만 색인한다.
+    Directory dir = newDirectory();
+    DirectoryReader reader = index(dir, docs, new MockAnalyzer(random()), 0, 40, 80, OpenMode.CREATE);
+    IndexSearcher searcher = newSearcher(reader);
+    assertEquals(2, reader.numDocs());
+    assertEquals(1, searcher.search(new TermQuery(new Term("contents", "wta")), 1).totalHits);
+    assertEquals(0, searcher.search(new TermQuery(new Term("contents", "wua")), 1).totalHits);
+    reader.close();
+    dir.close();
+
+    // 토큰 수는 청크마다가 아니라 파일 전체에서 15개로 제한되고, 제한에 도달하면 나머지 청크는 만들지 않는다.
+    // 토큰 제한으로 tokenizer 를 끝까지 읽지 않으므로 MockTokenizer 의 검사를 끈다.
+    MockAnalyzer analyzer = new MockAnalyzer(random());
+    analyzer.setEnableChecks(false);
+    dir = newDirectory();
+    reader = index(dir, docs, analyzer, 15, 40, 0, OpenMode.CREATE);
+    searcher = newSearcher(reader);
+    assertEquals(2, reader.numDocs());
+    // 두번째 청크는 정확히 11번째 단어부터 시작한다.
+    assertEquals(1, searcher.search(new TermQuery(new Term("contents", "wka")), 1).totalHits);
+    assertEquals(1, searcher.search(new TermQuery(new Term("contents", "woa")), 1).totalHits);
+    assertEquals(0, searcher.search(new TermQuery(new Term("contents", "wpa")), 1).totalHits);
+    reader.close();
+    dir.close();
+  }
+
+  @Test
+  public void testChunkSizeCountsBytes() throws Exception {
+    // "가나 " 는 3 문자, 7 바이트이다. 10번 반복하면 30 문자, 70 바이트가 된다.
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 10; i++) {
+      sb.append("\uac00\ub098 ");
+    }
+    File docs = createTempDir("docs");
+    File big = new File(docs, "big.txt");
+    Files.write(big.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+
+    // 문자 수는 청크 크기보다 작지만 파일 크기는 크므로 35 바이트(5 단어) 청크 2개로 나누어야 한다.
+    Directory dir = newDirectory();
+    DirectoryReader reader = index(dir, docs, new MockAnalyzer(random()), 0, 35, 0, OpenMode.CREATE);
+    assertEquals(2, reader.numDocs());
+    IndexSearcher searcher = newSearcher(reader);
+    assertEquals(2, searcher.search(new TermQuery(new Term("contents", "\uac00\ub098")), 1).totalHits);
+    reader.close();
+    dir.close();
+  }
+}
@@ -0,0 +1,200 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
+import org.junit.Test;
+
+@SuppressCodecs("Lucene3x")
+public class TestContentDeduplicator extends LuceneTestCase {
+
+  private static void write(File file, String text) throws Exception {
+    Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void assertDuplicates(Directory dir, File canonical, File other, File duplicate) throws Exception {
+    DirectoryReader reader = DirectoryReader.open(dir);
+    IndexSearcher searcher = newSearcher(reader);
+    // 내용은 대표 문서(청크)에만 색인된다.
+    TopDocs hits = searcher.search(new TermQuery(new Term("contents", "same")), 10);
+    assertTrue(hits.totalHits > 0);
+    for (ScoreDoc hit : hits.scoreDocs) {
+      assertEquals(canonical.getPath(), searcher.doc(hit.doc).get("path"));
+    }
+    assertTrue(searcher.search(new TermQuery(new Term("path", other.getPath())), 1).totalHits > 0);
+
+    // 중복 파일은 path 로 찾을 수 있고 대표 path 를 가리킨다.
+    hits = searcher.search(new TermQuery(new Term("path", duplicate.getPath())), 10);
+    assertEquals(1, hits.totalHits);
+    Document doc = searcher.doc(hits.scoreDocs[0].doc);
+    assertEquals(canonical.getPath(), doc.get("duplicateOf"));
+    reader.close();
+  }
+
+  @Test
+  public void testDuplicatesBecomePathDocuments() throws Exception {
+    File docs = createTempDir("docs");
+    File a = new File(docs, "a.txt");
+    File b = new File(docs, "b.txt");
+    File c = new File(docs, "c.txt");
+    write(a, "same content");
+    write(b, "other content");
+    write(c, "same content");
+
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, IndexFiles.newConfig(new MockAnalyzer(random()), true));
+    IndexStats stats = new IndexStats();
+    FileIndexer indexer = new FileIndexer(writer, stats).setDeduplicator(new ContentDeduplicator());
+    IndexFiles.indexDocs(indexer, docs);
+    writer.close();
+
+    assertEquals(2, stats.getDocs());
+    assertEquals(1, stats.getDuplicates());
+    assertDuplicates(dir, a, b, c);
+    dir.close();
+  }
+
+  @Test
+  public void testStreamedFilesHashedBeforeIndexing() throws Exception {
+    File docs = createTempDir("docs");
+    File a = new File(docs, "a.txt");
+    File b = new File(docs, "b.txt");
+    File c = new File(docs, "c.txt");
+    StringBuilder same = new StringBuilder();
+    StringBuilder other = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      same.append("same word").append(i).append(' ');
+      other.append("other word").append(i).append(' ');
+    }
+    write(a, same.toString());
+    write(b, other.toString());
+    write(c, same.toString());
+
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, IndexFiles.newConfig(new MockAnalyzer(random()), true));
+    IndexStats stats = new IndexStats();
+    // 청크로 나누는 파일은 메모리에 올리지 않고 색인하기 전에 파일 전체를 읽어서 hash 를 계산한다.
+    // 최대 문자 수로 잘려도 hash 는 파일 전체로 계산해야 한다.
+    FileIndexer indexer = new FileIndexer(writer, stats).setDeduplicator(new ContentDeduplicator())
+        .setChunking(500, 1000);
+    IndexFiles.indexDocs(indexer, docs);
+    writer.close();
+
+    assertEquals(2, stats.getDocs());
+    assertEquals(1, stats.getDuplicates());
+    assertDuplicates(dir, a, b, c);
+    // 중복 파일은 색인한 뒤에 대체하지 않으므로 삭제된 문서가 없다.
+    DirectoryReader reader = DirectoryReader.open(dir);
+    assertEquals(reader.maxDoc(), reader.numDocs());
+    reader.close();
+    dir.close();
+  }
+
+  @Test
+  public void testDeletedCanonicalIsReplaced() throws Exception {
+    File docs = createTempDir("docs");
+    File a = new File(docs, "a.txt");
+    File b = new File(docs, "b.txt");
+    File c = new File(docs, "c.txt");
+    File d = new File(docs, "d.txt");
+    write(a, "same content");
+    write(b, "other content");
+    write(c, "same content");
+    write(d, "same content");
+
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, IndexFiles.newConfig(new MockAnalyzer(random()), true));
+    IndexFiles.indexDocs(new FileIndexer(writer, new IndexStats()).setDeduplicator(new ContentDeduplicator()), docs);
+    writer.close();
+
+    // 대표 파일이 삭제되면 첫번째 중복 파일이 새 대표가 되고 나머지는 새 대표를 가리킨다.
+    writer = new IndexWriter(dir, IndexFiles.newConfig(new MockAnalyzer(random()), false));
+    Files.delete(a.toPath());
+    writer.deleteDocuments(new Term("path", a.getPath()));
+    FileIndexer updater = new FileIndexer(writer, new IndexStats());
+    assertEquals(2, updater.reindexDuplicates(Collections.singleton(docs.getPath())));
+    writer.commit();
+    assertDuplicates(dir, c, b, d);
+
+    // 내용이 같은 채로 수정시간만 바뀐 대표 파일은 계속 대표로 남는다.
+    write(c, "same content");
+    updater.indexFile(c);
+    assertEquals(1, updater.reindexDuplicates(Collections.singleton(c.getPath())));
+    writer.close();
+    assertDuplicates(dir, c, b, d);
+    dir.close();
+  }
+
+  @Test
+  public void testModifiedCanonicalIsReplaced() throws Exception {
+    File docs = createTempDir("docs");
+    File a = new File(docs, "a.txt");
+    File b = new File(docs, "b.txt");
+    File c = new File(docs, "c.txt");
+    File d = new File(docs, "d.txt");
+    write(a, "same content");
+    write(b, "other content");
+    write(c, "same content");
+    write(d, "same content");
+
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, IndexFiles.newConfig(new MockAnalyzer(random()), true));
+    ContentDeduplicator deduplicator = new ContentDeduplicator();
+    IndexFiles.indexDocs(new FileIndexer(writer, new IndexStats()).setDeduplicator(deduplicator), docs);
+    writer.close();
+
+    // 대표 파일의 내용이 바뀌면 이전 내용의 중복 파일 중 첫번째가 새 대표가 된다.
+    writer = new IndexWriter(dir, IndexFiles.newConfig(new MockAnalyzer(random()), false));
+    write(a, "changed content");
+    FileIndexer updater = new FileIndexer(writer, new IndexStats()).setDeduplicator(deduplicator);
+    updater.indexFile(a);
+    assertEquals(2, updater.reindexDuplicates(Arrays.asList(a.getPath())));
+    writer.commit();
+    assertDuplicates(dir, c, a, d);
+
+    // 새 대표가 등록되었으므로 이후에 발견된 같은 내용의 파일은 새 대표를 가리킨다.
+    File e = new File(docs, "e.txt");
+    write(e, "same content");
+    updater.indexFile(e);
+    writer.close();
+    assertDuplicates(dir, c, a, e);
+
+    DirectoryReader reader = DirectoryReader.open(dir);
+    IndexSearcher searcher = newSearcher(reader);
+    assertEquals(1, searcher.search(new TermQuery(new Term("contents", "changed")), 1).totalHits);
+    reader.close();
+    dir.close();
+  }
+}
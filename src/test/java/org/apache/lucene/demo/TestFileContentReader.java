@@ -0,0 +1,85 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+import org.junit.Test;
+
+public class TestFileContentReader extends LuceneTestCase {
+
+  private static String readAll(Reader reader) throws Exception {
+    StringBuilder sb = new StringBuilder();
+    char[] buffer = new char[17];
+    int n;
+    while ((n = reader.read(buffer, 0, buffer.length)) != -1) {
+      sb.append(buffer, 0, n);
+    }
+    reader.close();
+    return sb.toString();
+  }
+
+  @Test
+  public void testSmallAndMappedFiles() throws Exception {
+    File dir = createTempDir("contents");
+    // 64 byte 보다 큰 파일은 mmap 으로 읽는다.
+    FileContentReader contentReader = new FileContentReader(64);
+    for (int i = 0; i < 20; i++) {
+      String text = TestUtil.randomUnicodeString(random(), 200);
+      File file = new File(dir, "file" + i + ".txt");
+      Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+      assertEquals(text, readAll(contentReader.open(file)));
+    }
+  }
+
+  @Test
+  public void testLargerThanDecodeBuffer() throws Exception {
+    File dir = createTempDir("contents");
+    FileContentReader contentReader = new FileContentReader(1024);
+    // 디코딩 버퍼 경계에 여러 byte 문자가 걸쳐도 그대로 읽혀야 한다.
+    String text = TestUtil.randomRealisticUnicodeString(random(), 3 * FileContentReader.DECODE_CHARS,
+        5 * FileContentReader.DECODE_CHARS);
+    File file = new File(dir, "large.txt");
+    Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    assertEquals(text, readAll(contentReader.open(file)));
+
+    // skip 도 디코딩 버퍼를 넘어서 건너뛴다.
+    Reader reader = contentReader.open(file);
+    int skip = FileContentReader.DECODE_CHARS + 10;
+    assertEquals(skip, reader.skip(skip));
+    assertEquals(text.substring(skip), readAll(reader));
+  }
+
+  @Test
+  public void testEmptyFile() throws Exception {
+    File file = new File(createTempDir("contents"), "empty.txt");
+    Files.write(file.toPath(), new byte[0]);
+    assertEquals("", readAll(new FileContentReader().open(file)));
+  }
+
+  @Test(expected = FileNotFoundException.class)
+  public void testMissingFile() throws Exception {
+    new FileContentReader().open(new File(createTempDir("contents"), "missing.txt"));
+  }
+}
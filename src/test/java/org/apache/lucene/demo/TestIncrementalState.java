@@ -0,0 +1,90 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
+import org.junit.Test;
+
+@SuppressCodecs("Lucene3x")
+public class TestIncrementalState extends LuceneTestCase {
+
+  private static void write(File file, String text) throws Exception {
+    Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private IndexStats run(Directory dir, File docs, OpenMode mode) throws Exception {
+    IncrementalState state = new IncrementalState();
+    if (DirectoryReader.indexExists(dir)) {
+      DirectoryReader reader = DirectoryReader.open(dir);
+      state = IncrementalState.load(reader);
+      reader.close();
+    }
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random()))
+        .setOpenMode(mode));
+    IndexStats stats = new IndexStats();
+    IndexFiles.indexDocs(new FileIndexer(writer, stats, state), docs);
+    state.deleteRemoved(writer, stats);
+    writer.close();
+    return stats;
+  }
+
+  @Test
+  public void testSkipsUnchangedAndDeletesRemoved() throws Exception {
+    File docs = createTempDir("docs");
+    File a = new File(docs, "a.txt");
+    File b = new File(docs, "b.txt");
+    File c = new File(docs, "c.txt");
+    write(a, "alpha");
+    write(b, "bravo");
+    write(c, "charlie");
+
+    Directory dir = newDirectory();
+    IndexStats first = run(dir, docs, OpenMode.CREATE);
+    assertEquals(3, first.getDocs());
+
+    write(b, "bravo bravo");
+    assertTrue(c.delete());
+    write(new File(docs, "d.txt"), "delta");
+
+    IndexStats second = run(dir, docs, OpenMode.CREATE_OR_APPEND);
+    assertEquals(2, second.getDocs());
+    assertEquals(1, second.getSkipped());
+    assertEquals(1, second.getDeleted());
+
+    DirectoryReader reader = DirectoryReader.open(dir);
+    assertEquals(3, reader.numDocs());
+    IndexSearcher searcher = newSearcher(reader);
+    assertEquals(0, searcher.search(new TermQuery(new Term("path", c.getPath())), 1).totalHits);
+    assertEquals(1, searcher.search(new TermQuery(new Term("path", b.getPath())), 1).totalHits);
+    reader.close();
+    dir.close();
+  }
+}
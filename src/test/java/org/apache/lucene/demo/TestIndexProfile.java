@@ -0,0 +1,73 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+public class TestIndexProfile extends LuceneTestCase {
+
+  @Test
+  public void testForName() {
+    assertEquals(IndexProfile.BULK, IndexProfile.forName("bulk"));
+    assertEquals(IndexProfile.LOWMEM, IndexProfile.forName("LowMem"));
+    try {
+      IndexProfile.forName("fast");
+      fail("unknown profile must be rejected");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void testBulkIsSplitAcrossWriters() {
+    IndexWriterConfig iwc = IndexProfile.BULK.apply(
+        new IndexWriterConfig(TEST_VERSION_CURRENT, new MockAnalyzer(random())), 4);
+    assertEquals(128.0, iwc.getRAMBufferSizeMB(), 0.0);
+    assertEquals(IndexWriterConfig.DISABLE_AUTO_FLUSH, iwc.getMaxBufferedDocs());
+    assertFalse(iwc.getUseCompoundFile());
+    assertEquals(0.0, iwc.getMergePolicy().getNoCFSRatio(), 0.0);
+    assertTrue(iwc.getMergeScheduler() instanceof ConcurrentMergeScheduler);
+    ConcurrentMergeScheduler cms = (ConcurrentMergeScheduler) iwc.getMergeScheduler();
+    assertTrue(cms.getMaxMergeCount() >= cms.getMaxThreadCount());
+  }
+
+  @Test
+  public void testLowMem() {
+    IndexWriterConfig iwc = IndexProfile.LOWMEM.apply(
+        new IndexWriterConfig(TEST_VERSION_CURRENT, new MockAnalyzer(random())), 1);
+    assertEquals(8.0, iwc.getRAMBufferSizeMB(), 0.0);
+    assertEquals(1000, iwc.getMaxBufferedDocs());
+    assertEquals(512.0, ((TieredMergePolicy) iwc.getMergePolicy()).getMaxMergedSegmentMB(), 0.0);
+    assertEquals(1, ((ConcurrentMergeScheduler) iwc.getMergeScheduler()).getMaxThreadCount());
+  }
+
+  @Test
+  public void testDefaultIsSplitAcrossWriters() {
+    // 다른 profile 과 마찬가지로 -shards N 이어도 전체 RAM 버퍼는 16MB 이다.
+    IndexWriterConfig iwc = IndexProfile.DEFAULT.apply(
+        new IndexWriterConfig(TEST_VERSION_CURRENT, new MockAnalyzer(random())), 4);
+    assertEquals(IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB / 4, iwc.getRAMBufferSizeMB(), 0.0);
+    assertEquals(IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB,
+        IndexProfile.DEFAULT.apply(new IndexWriterConfig(TEST_VERSION_CURRENT, new MockAnalyzer(random())), 1)
+            .getRAMBufferSizeMB(), 0.0);
+  }
+}
@@ -0,0 +1,85 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
+import org.junit.Test;
+
+@SuppressCodecs("Lucene3x")
+public class TestIndexShards extends LuceneTestCase {
+
+  @Test
+  public void testPartitionAndMerge() throws Exception {
+    File docs = createTempDir("docs");
+    int numFiles = atLeast(20);
+    for (int i = 0; i < numFiles; i++) {
+      Files.write(new File(docs, "file" + i + ".txt").toPath(), ("text " + i).getBytes(StandardCharsets.UTF_8));
+    }
+
+    Analyzer analyzer = new MockAnalyzer(random());
+    int numShards = 3;
+    Directory[] shardDirs = new Directory[numShards];
+    IndexWriter[] writers = new IndexWriter[numShards];
+    for (int i = 0; i < numShards; i++) {
+      shardDirs[i] = newDirectory();
+      writers[i] = new IndexWriter(shardDirs[i], IndexFiles.newConfig(analyzer, true));
+    }
+    IndexShards shards = new IndexShards(writers);
+    IndexFiles.indexDocs(new FileIndexer(shards, new IndexStats(), null), docs);
+    shards.close();
+
+    // 각 문서는 path 의 hash 값에 해당하는 shard 에만 존재한다.
+    int total = 0;
+    for (int i = 0; i < numShards; i++) {
+      DirectoryReader reader = DirectoryReader.open(shardDirs[i]);
+      IndexSearcher searcher = newSearcher(reader);
+      for (int f = 0; f < numFiles; f++) {
+        String path = new File(docs, "file" + f + ".txt").getPath();
+        int expected = IndexShards.shardFor(path, numShards) == i ? 1 : 0;
+        assertEquals(expected, searcher.search(new TermQuery(new Term("path", path)), 1).totalHits);
+      }
+      total += reader.numDocs();
+      reader.close();
+    }
+    assertEquals(numFiles, total);
+
+    Directory merged = newDirectory();
+    IndexFiles.mergeShards(merged, shardDirs, IndexFiles.newConfig(analyzer, true));
+    DirectoryReader reader = DirectoryReader.open(merged);
+    assertEquals(numFiles, reader.numDocs());
+    assertEquals(1, reader.leaves().size());
+    reader.close();
+
+    IOUtils.close(merged);
+    IOUtils.close(shardDirs);
+  }
+}
@@ -0,0 +1,159 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
+import org.junit.Test;
+
+@SuppressCodecs("Lucene3x")
+public class TestIndexWatcher extends LuceneTestCase {
+
+  /** commit 된 색인에서 path 가 검색될때까지 기다린다. */
+  private void awaitHits(Directory dir, String path, int expected) throws Exception {
+    int hits = -1;
+    for (int i = 0; i < 200 && hits != expected; i++) {
+      Thread.sleep(50);
+      DirectoryReader reader = DirectoryReader.open(dir);
+      hits = new IndexSearcher(reader).search(new TermQuery(new Term("path", path)), 1).totalHits;
+      reader.close();
+    }
+    assertEquals(path, expected, hits);
+  }
+
+  @Test
+  public void testAppliesChanges() throws Exception {
+    File docs = createTempDir("docs");
+    File kept = new File(docs, "kept.txt");
+    Files.write(kept.toPath(), "kept".getBytes(StandardCharsets.UTF_8));
+
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    IndexShards shards = new IndexShards(writer);
+    IndexStats stats = new IndexStats();
+    IndexFiles.indexDocs(new FileIndexer(shards, stats, null), docs);
+    shards.commit();
+
+    final IndexWatcher watcher = new IndexWatcher(new FileIndexer(shards, stats, null).setAlwaysUpdate(true),
+        shards, docs, 100);
+    final Exception[] failure = new Exception[1];
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        try {
+          watcher.run();
+        } catch (Exception e) {
+          failure[0] = e;
+        }
+      }
+    };
+    thread.start();
+
+    // 새 파일과 새 디렉토리 안의 파일이 색인된다.
+    File added = new File(docs, "added.txt");
+    Files.write(added.toPath(), "added".getBytes(StandardCharsets.UTF_8));
+    File sub = new File(docs, "sub");
+    assertTrue(sub.mkdir());
+    File nested = new File(sub, "nested.txt");
+    Files.write(nested.toPath(), "nested".getBytes(StandardCharsets.UTF_8));
+    awaitHits(dir, added.getPath(), 1);
+    awaitHits(dir, nested.getPath(), 1);
+
+    // 수정된 파일은 기존 문서를 대체한다.
+    Files.write(kept.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+    Files.delete(added.toPath());
+    awaitHits(dir, added.getPath(), 0);
+    awaitHits(dir, kept.getPath(), 1);
+
+    watcher.close();
+    thread.join();
+    assertNull(failure[0]);
+    shards.close();
+
+    DirectoryReader reader = DirectoryReader.open(dir);
+    assertEquals(2, reader.numDocs());
+    reader.close();
+    dir.close();
+  }
+
+  /** 이벤트가 유실된(OVERFLOW) 디렉토리는 다시 탐색해서 사라진 파일의 문서를 삭제한다. */
+  @Test
+  public void testRescanAfterOverflowDeletesMissingFiles() throws Exception {
+    File docs = createTempDir("docs");
+    File sub = new File(docs, "sub");
+    File sibling = new File(docs, "sub2");
+    assertTrue(sub.mkdir());
+    assertTrue(sibling.mkdir());
+    File removed = new File(sub, "removed.txt");
+    File changed = new File(sub, "changed.txt");
+    File kept = new File(sibling, "kept.txt");
+    Files.write(removed.toPath(), "removed".getBytes(StandardCharsets.UTF_8));
+    Files.write(changed.toPath(), "before".getBytes(StandardCharsets.UTF_8));
+    Files.write(kept.toPath(), "kept".getBytes(StandardCharsets.UTF_8));
+
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    IndexShards shards = new IndexShards(writer);
+    IndexStats stats = new IndexStats();
+    IndexFiles.indexDocs(new FileIndexer(shards, stats, null), docs);
+    shards.commit();
+
+    IndexWatcher watcher = new IndexWatcher(new FileIndexer(shards, stats, null).setAlwaysUpdate(true),
+        shards, docs, 100);
+
+    // 이벤트 없이 바뀐 내용은 sub 디렉토리의 OVERFLOW 로만 알 수 있다.
+    Files.delete(removed.toPath());
+    Files.write(changed.toPath(), "after and longer".getBytes(StandardCharsets.UTF_8));
+    File created = new File(sub, "created.txt");
+    Files.write(created.toPath(), "created".getBytes(StandardCharsets.UTF_8));
+    Files.delete(kept.toPath());
+
+    Map<Path, IndexWatcher.Change> pending = new LinkedHashMap<>();
+    pending.put(sub.toPath(), IndexWatcher.Change.RESCAN);
+    watcher.apply(pending);
+    watcher.close();
+
+    DirectoryReader reader = DirectoryReader.open(dir);
+    IndexSearcher searcher = new IndexSearcher(reader);
+    assertEquals(0, searcher.search(new TermQuery(new Term("path", removed.getPath())), 1).totalHits);
+    assertEquals(1, searcher.search(new TermQuery(new Term("path", created.getPath())), 1).totalHits);
+    assertEquals(1, searcher.search(new TermQuery(new Term("contents", "after")), 1).totalHits);
+    assertEquals(0, searcher.search(new TermQuery(new Term("contents", "before")), 1).totalHits);
+    // 이름이 prefix 로 겹치는 옆 디렉토리는 다시 탐색하지 않는다.
+    assertEquals(1, searcher.search(new TermQuery(new Term("path", kept.getPath())), 1).totalHits);
+    assertEquals(3, reader.numDocs());
+    reader.close();
+
+    shards.close();
+    dir.close();
+  }
+}
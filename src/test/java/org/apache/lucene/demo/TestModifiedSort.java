@@ -0,0 +1,80 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.sorter.SortingMergePolicy;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
+import org.junit.Test;
+
+@SuppressCodecs("Lucene3x")
+public class TestModifiedSort extends LuceneTestCase {
+
+  @Test
+  public void testEarlyTerminationKeepsOrder() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir,
+        ModifiedSort.apply(newIndexWriterConfig(new MockAnalyzer(random()))));
+    int numDocs = atLeast(200);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(newTextField("contents", "common", Field.Store.NO));
+      doc.add(new NumericDocValuesField(ModifiedSort.FIELD, random().nextInt(100000)));
+      writer.addDocument(doc);
+      if (i == numDocs / 2) {
+        // forceMerge 가 실제로 병합하도록 세그먼트를 둘 이상 만든다.
+        writer.commit();
+      }
+    }
+    // 병합된 세그먼트는 최신 파일 순서로 정렬된다.
+    writer.forceMerge(1);
+    writer.close();
+
+    DirectoryReader reader = DirectoryReader.open(dir);
+    for (AtomicReaderContext leaf : reader.leaves()) {
+      assertTrue(SortingMergePolicy.isSorted(leaf.reader(), ModifiedSort.NEWEST_FIRST));
+    }
+
+    IndexSearcher searcher = new IndexSearcher(reader);
+    TermQuery query = new TermQuery(new Term("contents", "common"));
+    int n = 10;
+    TopDocs expected = searcher.search(query, null, n, ModifiedSort.NEWEST_FIRST);
+    TopDocs actual = ModifiedSort.search(searcher, query, n);
+    assertEquals(n, actual.scoreDocs.length);
+    for (int i = 0; i < n; i++) {
+      assertEquals(((FieldDoc) expected.scoreDocs[i]).fields[0], ((FieldDoc) actual.scoreDocs[i]).fields[0]);
+    }
+    // 상위 n 건을 모은 뒤 수집을 멈췄다.
+    assertTrue(actual.totalHits < numDocs);
+    reader.close();
+    dir.close();
+  }
+}
@@ -0,0 +1,93 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+public class TestPageCursor extends LuceneTestCase {
+
+  @Test
+  public void testToken() {
+    PageCursor cursor = new PageCursor(7, new ScoreDoc(12345, 0.75f));
+    String token = cursor.toToken();
+    assertEquals(16, token.length());
+    PageCursor parsed = PageCursor.parse(token);
+    assertEquals(7, parsed.getPage());
+    assertEquals(12345, parsed.getAfter().doc);
+    assertEquals(0.75f, parsed.getAfter().score, 0f);
+    assertSame(PageCursor.FIRST, PageCursor.parse(PageCursor.FIRST.toToken()));
+
+    try {
+      PageCursor.parse("abc");
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test
+  public void testPagesMatchFullSearch() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter writer = new RandomIndexWriter(random(), dir, new MockAnalyzer(random()));
+    int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      StringBuilder sb = new StringBuilder("hit");
+      for (int j = random().nextInt(5); j > 0; j--) {
+        sb.append(" hit");
+      }
+      doc.add(newTextField("contents", sb.toString(), Field.Store.NO));
+      writer.addDocument(doc);
+    }
+    IndexReader reader = writer.getReader();
+    writer.close();
+
+    IndexSearcher searcher = newSearcher(reader);
+    TermQuery query = new TermQuery(new Term("contents", "hit"));
+    ScoreDoc[] all = searcher.search(query, numDocs).scoreDocs;
+
+    // token 으로 변환하면서 한 페이지씩 넘겨도 전체 검색과 같은 순서로 결과가 나온다.
+    int hitsPerPage = 1 + random().nextInt(10);
+    PageCursor cursor = PageCursor.FIRST;
+    int seen = 0;
+    while (cursor != null) {
+      TopDocs page = cursor.search(searcher, query, hitsPerPage);
+      assertEquals(numDocs, page.totalHits);
+      assertTrue(page.scoreDocs.length <= hitsPerPage);
+      for (ScoreDoc hit : page.scoreDocs) {
+        assertEquals(all[seen++].doc, hit.doc);
+      }
+      PageCursor next = cursor.next(page);
+      cursor = next == null ? null : PageCursor.parse(next.toToken());
+    }
+    assertEquals(numDocs, seen);
+    reader.close();
+    dir.close();
+  }
+}
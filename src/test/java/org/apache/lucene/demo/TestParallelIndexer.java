@@ -0,0 +1,131 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
+import org.apache.lucene.util.LuceneTestCase.SuppressSysoutChecks;
+import org.junit.Test;
+
+@SuppressCodecs("Lucene3x")
+@SuppressSysoutChecks(bugUrl = "FileIndexer prints one line per indexed file")
+public class TestParallelIndexer extends LuceneTestCase {
+
+  private static int createDocs(File docs) throws Exception {
+    int numFiles = 0;
+    for (int d = 0; d < 5; d++) {
+      File sub = new File(docs, "dir" + d);
+      assertTrue(sub.mkdirs());
+      for (int f = 0; f < 7; f++) {
+        Files.write(new File(sub, "file" + f + ".txt").toPath(),
+            ("hello world " + d + " " + f).getBytes(StandardCharsets.UTF_8));
+        numFiles++;
+      }
+    }
+    return numFiles;
+  }
+
+  @Test
+  public void testIndexesEveryFile() throws Exception {
+    File docs = createTempDir("docs");
+    int numFiles = createDocs(docs);
+
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random()))
+        .setOpenMode(OpenMode.CREATE));
+    IndexStats stats = new IndexStats();
+    new ParallelIndexer(new FileIndexer(writer, stats), 4, 2).indexDocs(docs);
+    writer.close();
+
+    assertEquals(numFiles, stats.getDocs());
+    DirectoryReader reader = DirectoryReader.open(dir);
+    assertEquals(numFiles, reader.numDocs());
+    reader.close();
+    dir.close();
+  }
+
+  @Test
+  public void testUncheckedFailureDoesNotHang() throws Exception {
+    File docs = createTempDir("docs");
+    createDocs(docs);
+
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    FileIndexer failing = new FileIndexer(writer, new IndexStats()) {
+      @Override
+      public void indexFile(File file) {
+        throw new IllegalStateException("boom");
+      }
+    };
+    // queue 보다 파일이 많아도 모든 색인 스레드가 실패한 뒤에 멈추지 않고 오류를 던져야 한다.
+    try {
+      new ParallelIndexer(failing, 2, 1).indexDocs(docs);
+      fail("expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertEquals("boom", e.getMessage());
+    }
+    writer.close();
+    dir.close();
+  }
+
+  @Test
+  public void testReusedDocuments() throws Exception {
+    File docs = createTempDir("docs");
+    int numFiles = createDocs(docs);
+
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random()))
+        .setOpenMode(OpenMode.CREATE));
+    FileIndexer indexer = new FileIndexer(writer, new IndexStats())
+        .setContentReader(new FileContentReader(16))
+        .setReuseDocuments(true);
+    new ParallelIndexer(indexer, 3, 4).indexDocs(docs);
+    writer.close();
+
+    // 재사용된 Document 라도 파일마다 자신의 path 와 내용으로 색인되어야 한다.
+    DirectoryReader reader = DirectoryReader.open(dir);
+    IndexSearcher searcher = newSearcher(reader);
+    assertEquals(numFiles, reader.numDocs());
+    for (int d = 0; d < 5; d++) {
+      for (int f = 0; f < 7; f++) {
+        String path = new File(new File(docs, "dir" + d), "file" + f + ".txt").getPath();
+        BooleanQuery query = new BooleanQuery();
+        query.add(new TermQuery(new Term("path", path)), BooleanClause.Occur.MUST);
+        query.add(new TermQuery(new Term("contents", String.valueOf(d))), BooleanClause.Occur.MUST);
+        query.add(new TermQuery(new Term("contents", String.valueOf(f))), BooleanClause.Occur.MUST);
+        assertEquals(path, 1, searcher.search(query, 1).totalHits);
+      }
+    }
+    reader.close();
+    dir.close();
+  }
+}
@@ -0,0 +1,98 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
+import org.junit.Test;
+
+@SuppressCodecs("Lucene3x")
+public class TestPrefetchPipeline extends LuceneTestCase {
+
+  @Test
+  public void testSmallFilesPrefetchedLargeFilesPassedThrough() throws Exception {
+    File docs = createTempDir("docs");
+    int numSmall = atLeast(10);
+    for (int i = 0; i < numSmall; i++) {
+      Files.write(new File(docs, "small" + i + ".txt").toPath(), ("small " + i).getBytes(StandardCharsets.UTF_8));
+    }
+    StringBuilder large = new StringBuilder();
+    while (large.length() < 1000) {
+      large.append("large ");
+    }
+    Files.write(new File(docs, "large.txt").toPath(), large.toString().getBytes(StandardCharsets.UTF_8));
+
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, IndexFiles.newConfig(new MockAnalyzer(random()), true));
+    IndexStats stats = new IndexStats();
+    PrefetchPipeline pipeline = new PrefetchPipeline(new FileIndexer(writer, stats), 2, 2, 3, 100);
+    pipeline.indexDocs(docs);
+    writer.close();
+
+    assertEquals(numSmall + 1, stats.getDocs());
+    assertEquals(numSmall, pipeline.getPrefetched());
+    assertEquals(1, pipeline.getPassedThrough());
+    assertEquals(0, pipeline.getReadyQueueDepth());
+
+    DirectoryReader reader = DirectoryReader.open(dir);
+    IndexSearcher searcher = newSearcher(reader);
+    assertEquals(numSmall, searcher.search(new TermQuery(new Term("contents", "small")), 1).totalHits);
+    assertEquals(1, searcher.search(new TermQuery(new Term("contents", "large")), 1).totalHits);
+    reader.close();
+    dir.close();
+  }
+
+  @Test
+  public void testUncheckedFailureDoesNotHang() throws Exception {
+    File docs = createTempDir("docs");
+    int numFiles = atLeast(20);
+    for (int i = 0; i < numFiles; i++) {
+      Files.write(new File(docs, "doc" + i + ".txt").toPath(), ("doc " + i).getBytes(StandardCharsets.UTF_8));
+    }
+
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    FileIndexer failing = new FileIndexer(writer, new IndexStats()) {
+      @Override
+      public void indexFile(File file, ByteBuffer content) {
+        throw new IllegalStateException("boom");
+      }
+    };
+    // 버퍼와 queue 보다 파일이 많아도 색인 단계가 실패한 뒤에 멈추지 않고 오류를 던져야 한다.
+    try {
+      new PrefetchPipeline(failing, 2, 1, 2, 100).indexDocs(docs);
+      fail("expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertEquals("boom", e.getMessage());
+    }
+    writer.close();
+    dir.close();
+  }
+}
@@ -0,0 +1,85 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+public class TestQueryParsingService extends LuceneTestCase {
+
+  @Test
+  public void testCacheReturnsCopies() throws Exception {
+    QueryParsingService service = new QueryParsingService("contents", new MockAnalyzer(random()), 2);
+    Query first = service.parse("apple AND banana");
+    Query second = service.parse("  apple AND banana ");
+    assertEquals(first, second);
+    assertNotSame(first, second);
+    assertEquals(1, service.getHits());
+    assertEquals(1, service.getMisses());
+
+    // 돌려받은 쿼리를 바꿔도 캐시된 쿼리는 바뀌지 않는다.
+    second.setBoost(5f);
+    assertEquals(1f, service.parse("apple AND banana").getBoost(), 0f);
+
+    // 가장 오래 사용되지 않은 쿼리부터 제거된다.
+    service.parse("cherry");
+    service.parse("durian");
+    assertEquals(2, service.size());
+    assertEquals(1, service.getEvictions());
+
+    try {
+      service.parse("apple AND (");
+      fail();
+    } catch (ParseException expected) {
+    }
+    assertEquals(1, service.getErrors());
+    assertEquals(2, service.size());
+  }
+
+  @Test
+  public void testConcurrentParsing() throws Exception {
+    final QueryParsingService service = new QueryParsingService("contents", new MockAnalyzer(random()), 10);
+    final Query expected = service.parse("+a +b c");
+    Thread[] threads = new Thread[4];
+    final Throwable[] failure = new Throwable[1];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < 200; i++) {
+              assertEquals(expected, service.parse("+a +b c"));
+              service.parse("q" + (i % 20));
+            }
+          } catch (Throwable e) {
+            failure[0] = e;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(failure[0]);
+    assertTrue(service.size() <= 10);
+  }
+}
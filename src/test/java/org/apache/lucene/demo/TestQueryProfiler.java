@@ -0,0 +1,93 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+public class TestQueryProfiler extends LuceneTestCase {
+
+  private void assertSameResults(IndexSearcher searcher, Query query) throws Exception {
+    TopDocs expected = searcher.search(query, 10);
+    QueryProfiler profiler = new QueryProfiler(query);
+    TopDocs actual = profiler.search(searcher, 10);
+    assertEquals(expected.totalHits, actual.totalHits);
+    for (int i = 0; i < expected.scoreDocs.length; i++) {
+      assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+      assertEquals(expected.scoreDocs[i].score, actual.scoreDocs[i].score, 1e-6f);
+    }
+  }
+
+  @Test
+  public void testProfile() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter writer = new RandomIndexWriter(random(), dir, new MockAnalyzer(random()));
+    for (int i = 0; i < 50; i++) {
+      Document doc = new Document();
+      doc.add(newTextField("contents", (i % 2 == 0 ? "apple " : "banana ") + (i % 5 == 0 ? "cherry" : ""),
+          Field.Store.NO));
+      writer.addDocument(doc);
+    }
+    IndexReader reader = writer.getReader();
+    writer.close();
+    // 점수까지 비교하므로 검증용 래퍼 없이 사용한다.
+    IndexSearcher searcher = newSearcher(reader, false);
+
+    BooleanQuery bq = new BooleanQuery();
+    bq.add(new TermQuery(new Term("contents", "apple")), Occur.SHOULD);
+    bq.add(new TermQuery(new Term("contents", "cherry")), Occur.MUST);
+    assertSameResults(searcher, bq);
+
+    QueryProfiler profiler = new QueryProfiler(bq);
+    profiler.search(searcher, 10);
+    assertEquals(2, profiler.getRoot().getChildren().size());
+    assertTrue(profiler.getRoot().getChildren().get(1).getDocs() > 0);
+    assertTrue(profiler.getTotalNanos() > 0);
+    assertTrue(profiler.format("contents").contains("cherry"));
+    assertTrue(profiler.logIfSlow(0, "contents"));
+    assertFalse(profiler.logIfSlow(Long.MAX_VALUE / 1000000, "contents"));
+    // 측정 도구 없이 잰 시간으로도 판단한다.
+    assertTrue(QueryProfiler.logIfSlow(bq, TimeUnit.MILLISECONDS.toNanos(5), 5, "contents", null));
+    assertFalse(QueryProfiler.logIfSlow(bq, TimeUnit.MILLISECONDS.toNanos(4), 5, "contents", profiler));
+
+    // boost 가 있는 단일 절과 rewrite 가 필요한 쿼리
+    BooleanQuery single = new BooleanQuery();
+    single.add(new PrefixQuery(new Term("contents", "ban")), Occur.MUST);
+    single.setBoost(2f);
+    assertSameResults(searcher, single);
+
+    reader.close();
+    dir.close();
+  }
+}
@@ -0,0 +1,116 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+public class TestQueryReplay extends LuceneTestCase {
+
+  @Test
+  public void testHistogramPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000L);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000000, histogram.getMax());
+    // bucket 의 상한을 반환하므로 오차는 1/16 이내이다.
+    assertEquals(500000, histogram.getPercentile(50), 500000 / 16);
+    assertEquals(990000, histogram.getPercentile(99), 990000 / 16);
+    assertEquals(1000000, histogram.getPercentile(100));
+
+    LatencyHistogram merged = new LatencyHistogram();
+    merged.add(histogram);
+    merged.add(histogram);
+    assertEquals(2000, merged.getCount());
+    assertEquals(histogram.getPercentile(90), merged.getPercentile(90));
+  }
+
+  @Test
+  public void testBucketBounds() {
+    for (long value : new long[] {0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE}) {
+      assertTrue(value <= LatencyHistogram.highestValue(LatencyHistogram.bucket(value)));
+    }
+    assertEquals(LatencyHistogram.bucket(32), LatencyHistogram.bucket(33));
+    assertTrue(LatencyHistogram.bucket(31) < LatencyHistogram.bucket(32));
+  }
+
+  @Test
+  public void testIterations() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter writer = new RandomIndexWriter(random(), dir, new MockAnalyzer(random()));
+    for (int i = 0; i < 20; i++) {
+      Document doc = new Document();
+      doc.add(newTextField("contents", i % 2 == 0 ? "even" : "odd", Field.Store.NO));
+      writer.addDocument(doc);
+    }
+    IndexReader reader = writer.getReader();
+    writer.close();
+
+    QueryReplay replay = new QueryReplay(newSearcher(reader), Arrays.<Query> asList(
+        new TermQuery(new Term("contents", "even")), new TermQuery(new Term("contents", "odd"))), 3, 10);
+    replay.run(0, 5);
+    // 스레드 3개가 쿼리 2개를 5번씩 실행한다.
+    assertEquals(30, replay.getOverall().getCount());
+    assertEquals(15, replay.getHistogram(0).getCount());
+    assertEquals(15, replay.getHistogram(1).getCount());
+    assertTrue(replay.qps(replay.getOverall()) > 0);
+    reader.close();
+    dir.close();
+  }
+
+  @Test
+  public void testFailureRethrown() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter writer = new RandomIndexWriter(random(), dir, new MockAnalyzer(random()));
+    writer.addDocument(new Document());
+    IndexReader reader = writer.getReader();
+    writer.close();
+
+    IndexSearcher failing = new IndexSearcher(reader) {
+      @Override
+      public TopDocs search(Query query, int n) {
+        throw new IllegalStateException("boom");
+      }
+    };
+    QueryReplay replay = new QueryReplay(failing, Arrays.<Query> asList(new TermQuery(new Term("contents", "x"))), 2, 10);
+    // 검색 스레드의 unchecked 예외도 삼키지 않고 run() 에서 다시 던져야 한다.
+    try {
+      replay.run(0, 5);
+      fail("expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertEquals("boom", e.getMessage());
+    }
+    reader.close();
+    dir.close();
+  }
+}
@@ -0,0 +1,119 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+public class TestQueryResultCache extends LuceneTestCase {
+
+  private static void addDoc(IndexWriter writer, String text) throws Exception {
+    Document doc = new Document();
+    doc.add(newTextField("contents", text, Field.Store.NO));
+    writer.addDocument(doc);
+  }
+
+  @Test
+  public void testHitsAndInvalidation() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    addDoc(writer, "apple banana");
+    addDoc(writer, "apple");
+    writer.commit();
+
+    QueryResultCache cache = new QueryResultCache(1 << 20);
+    DirectoryReader reader = DirectoryReader.open(dir);
+    IndexSearcher searcher = new IndexSearcher(reader);
+    TermQuery query = new TermQuery(new Term("contents", "apple"));
+
+    TopDocs first = cache.search(searcher, query, PageCursor.FIRST, 10);
+    assertEquals(2, first.totalHits);
+    // 같은 내용의 다른 쿼리 객체로도 캐시에서 찾는다.
+    assertSame(first, cache.search(searcher, new TermQuery(new Term("contents", "apple")), PageCursor.FIRST, 10));
+    // 페이지 크기가 다르면 다른 항목이다.
+    cache.search(searcher, query, PageCursor.FIRST, 1);
+    assertEquals(1, cache.getHits());
+    assertEquals(2, cache.getMisses());
+    assertEquals(2, cache.size());
+
+    // 새 commit 을 연 Reader 로 조회하면 캐시를 비운다.
+    addDoc(writer, "apple cherry");
+    writer.commit();
+    DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+    assertNotNull(newReader);
+    TopDocs refreshed = cache.search(new IndexSearcher(newReader), query, PageCursor.FIRST, 10);
+    assertEquals(3, refreshed.totalHits);
+    assertEquals(1, cache.getInvalidations());
+    assertEquals(1, cache.size());
+
+    reader.close();
+    newReader.close();
+    writer.close();
+    dir.close();
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    for (int i = 0; i < 50; i++) {
+      addDoc(writer, "term" + i + " common");
+    }
+    writer.close();
+    DirectoryReader reader = DirectoryReader.open(dir);
+    IndexSearcher searcher = new IndexSearcher(reader);
+
+    // 항목 몇개만 들어가는 크기
+    QueryResultCache cache = new QueryResultCache(2048);
+    for (int i = 0; i < 50; i++) {
+      cache.search(searcher, new TermQuery(new Term("contents", "term" + i)), PageCursor.FIRST, 10);
+    }
+    assertTrue(cache.getEvictions() > 0);
+    assertTrue(cache.ramBytesUsed() <= 2048);
+    assertEquals(50, cache.size() + cache.getEvictions());
+
+    // 가장 최근 항목은 남아 있다.
+    cache.search(searcher, new TermQuery(new Term("contents", "term49")), PageCursor.FIRST, 10);
+    assertEquals(1, cache.getHits());
+    reader.close();
+    dir.close();
+  }
+
+  @Test
+  public void testTopQueries() throws Exception {
+    File file = new File(createTempDir("queries"), "queries.txt");
+    Files.write(file.toPath(), Arrays.asList("b", "a", "c", "a", "", "c", "a"), StandardCharsets.UTF_8);
+    assertEquals(Arrays.asList("a", "c"), QueryResultCache.topQueries(file.toPath(), 2));
+    assertEquals(Arrays.asList("a", "c", "b"), QueryResultCache.topQueries(file.toPath(), 10));
+  }
+}
@@ -0,0 +1,103 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.StringWriter;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+public class TestResultExporter extends LuceneTestCase {
+
+  @Test
+  public void testExportsAllHitsInDocIdOrder() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    int numDocs = atLeast(300);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(new StringField("path", "dir/file" + i, Field.Store.YES));
+      doc.add(new StringField("title", "title" + i, Field.Store.YES));
+      doc.add(new TextField("contents", i % 3 == 0 ? "match" : "other", Field.Store.NO));
+      writer.addDocument(doc);
+      if (random().nextInt(100) == 0) {
+        writer.commit();
+      }
+    }
+    writer.forceMerge(1 + random().nextInt(3));
+    writer.close();
+    DirectoryReader reader = DirectoryReader.open(dir);
+    IndexSearcher searcher = new IndexSearcher(reader);
+
+    StringWriter out = new StringWriter();
+    long count = ResultExporter.export(searcher, new TermQuery(new Term("contents", "match")), 3, out,
+        new StoredFieldLoader("path"));
+    String[] lines = out.toString().split("\n");
+    assertEquals(lines.length, count);
+
+    int expected = 0;
+    int previous = -1;
+    for (String line : lines) {
+      String[] columns = line.split("\t");
+      assertEquals(3, columns.length);
+      assertEquals("3", columns[0]);
+      int docID = Integer.parseInt(columns[1]);
+      assertTrue(docID > previous);
+      previous = docID;
+      assertEquals(reader.document(docID).get("path"), columns[2]);
+      expected++;
+    }
+    assertEquals(searcher.search(new TermQuery(new Term("contents", "match")), 1).totalHits, expected);
+
+    reader.close();
+    dir.close();
+  }
+
+  @Test
+  public void testEscapesValues() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    Document doc = new Document();
+    doc.add(new StringField("path", "a\tb|c\\d\ne", Field.Store.YES));
+    doc.add(new StringField("path", "second", Field.Store.YES));
+    writer.addDocument(doc);
+    writer.close();
+    DirectoryReader reader = DirectoryReader.open(dir);
+
+    StringWriter out = new StringWriter();
+    ResultExporter.export(new IndexSearcher(reader), new TermQuery(new Term("path", "second")), 1, out,
+        new StoredFieldLoader("path", "title"));
+    // 값이 여러개인 필드는 '|' 로 이어붙이고 없는 필드는 빈 칸이다.
+    assertEquals("1\t0\ta\\tb\\|c\\\\d\\ne|second\t\n", out.toString());
+
+    reader.close();
+    dir.close();
+  }
+
+}
@@ -0,0 +1,164 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+public class TestSearchService extends LuceneTestCase {
+
+  private static Document doc(String path) {
+    Document doc = new Document();
+    doc.add(new StringField("path", path, Field.Store.YES));
+    return doc;
+  }
+
+  @Test
+  public void testRefreshSeesNewCommits() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    writer.addDocument(doc("a"));
+    writer.commit();
+
+    SearchService service = new SearchService(dir, null, 0);
+    IndexSearcher before = service.acquire();
+    assertEquals(1, before.getIndexReader().numDocs());
+
+    writer.addDocument(doc("b"));
+    writer.commit();
+    assertTrue(service.maybeRefresh());
+    assertEquals(1, service.getRefreshCount());
+
+    IndexSearcher after = service.acquire();
+    try {
+      assertEquals(2, after.getIndexReader().numDocs());
+      // 교체 전에 얻은 Searcher 는 반환할때까지 그대로 사용할 수 있다.
+      assertEquals(1, before.getIndexReader().numDocs());
+    } finally {
+      service.release(after);
+      service.release(before);
+    }
+
+    // 바뀐 것이 없으면 교체하지 않는다.
+    assertTrue(service.maybeRefresh());
+    assertEquals(1, service.getRefreshCount());
+
+    service.close();
+    writer.close();
+    dir.close();
+  }
+
+  @Test
+  public void testBackgroundRefresh() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    writer.commit();
+
+    SearchService service = new SearchService(dir, null, 10);
+    writer.addDocument(doc("a"));
+    writer.commit();
+
+    long deadline = System.currentTimeMillis() + 10000;
+    int numDocs = 0;
+    while (numDocs == 0 && System.currentTimeMillis() < deadline) {
+      IndexSearcher searcher = service.acquire();
+      try {
+        numDocs = searcher.getIndexReader().numDocs();
+      } finally {
+        service.release(searcher);
+      }
+      Thread.sleep(10);
+    }
+    assertEquals(1, numDocs);
+
+    service.close();
+    writer.close();
+    dir.close();
+  }
+
+  @Test
+  public void testWarmsBeforePublishing() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    writer.addDocument(doc("a"));
+    writer.commit();
+
+    final int[] warmed = new int[1];
+    WarmingSearcherFactory factory = new WarmingSearcherFactory(null,
+        Collections.<Query> singletonList(new TermQuery(new Term("path", "a")))) {
+      @Override
+      protected void warm(IndexSearcher searcher) throws IOException {
+        super.warm(searcher);
+        warmed[0]++;
+      }
+    };
+    SearchService service = new SearchService(dir, factory, 0);
+    assertEquals(1, warmed[0]);
+
+    writer.addDocument(doc("b"));
+    writer.commit();
+    service.maybeRefresh();
+    assertEquals(2, warmed[0]);
+
+    service.close();
+    writer.close();
+    dir.close();
+  }
+
+  @Test
+  public void testReaderClosedAfterLastRelease() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    writer.addDocument(doc("a"));
+    writer.commit();
+
+    SearchService service = new SearchService(dir, null, 0);
+    IndexSearcher searcher = service.acquire();
+    IndexReader reader = searcher.getIndexReader();
+    service.close();
+
+    // 사용 중인 Searcher 는 닫힌 뒤에도 반환할때까지 검색할 수 있다.
+    assertEquals(1, searcher.search(new TermQuery(new Term("path", "a")), 1).totalHits);
+    service.release(searcher);
+    try {
+      reader.document(0);
+      fail("reader should be closed");
+    } catch (AlreadyClosedException e) {
+      // expected
+    }
+
+    writer.close();
+    dir.close();
+  }
+
+}
@@ -0,0 +1,145 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.similarities.DefaultSimilarity;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+public class TestShardedSearcher extends LuceneTestCase {
+
+  private IndexWriterConfig config() {
+    return newIndexWriterConfig(new MockAnalyzer(random())).setSimilarity(new DefaultSimilarity());
+  }
+
+  @Test
+  public void testScoresMatchSingleIndex() throws Exception {
+    int numShards = 3;
+    Directory single = newDirectory();
+    Directory[] shardDirs = new Directory[numShards];
+    IndexWriter singleWriter = new IndexWriter(single, config());
+    IndexWriter[] writers = new IndexWriter[numShards];
+    for (int i = 0; i < numShards; i++) {
+      shardDirs[i] = newDirectory();
+      writers[i] = new IndexWriter(shardDirs[i], config());
+    }
+    IndexShards shards = new IndexShards(writers);
+
+    int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      String path = "file" + i;
+      doc.add(new StringField("path", path, Field.Store.YES));
+      // 단어 빈도가 shard 마다 다르도록 만든다.
+      doc.add(new TextField("contents", "common " + (i % 7 == 0 ? "rare rare" : "filler") + " x" + (i % 3),
+          Field.Store.NO));
+      singleWriter.addDocument(doc);
+      shards.writerFor(path).addDocument(doc);
+    }
+    singleWriter.close();
+    shards.close();
+
+    ExecutorService executor = SlicedIndexSearcher.newExecutor(2);
+    ShardedSearcher sharded = new ShardedSearcher(executor);
+    for (int i = 0; i < numShards; i++) {
+      sharded.addShard("shard" + i, DirectoryReader.open(shardDirs[i]));
+    }
+    DirectoryReader singleReader = DirectoryReader.open(single);
+    IndexSearcher singleSearcher = new IndexSearcher(singleReader);
+
+    TermQuery query = new TermQuery(new Term("contents", "rare"));
+    TopDocs expected = singleSearcher.search(query, numDocs);
+
+    // 한 페이지씩 넘기면서 모은 결과가 하나의 색인을 검색한 결과와 같은 점수를 갖는다.
+    ShardedSearcher.View view = sharded.acquire();
+    Set<String> paths = new HashSet<>();
+    ScoreDoc after = null;
+    int seen = 0;
+    while (true) {
+      TopDocs page = view.searchAfter(after, query, 4);
+      assertEquals(expected.totalHits, page.totalHits);
+      if (page.scoreDocs.length == 0) {
+        break;
+      }
+      for (ScoreDoc hit : page.scoreDocs) {
+        assertEquals(expected.scoreDocs[seen++].score, hit.score, 1e-5f);
+        assertTrue(paths.add(view.doc(hit).get("path")));
+      }
+      after = page.scoreDocs[page.scoreDocs.length - 1];
+    }
+    assertEquals(expected.totalHits, seen);
+
+    // 여러 단어를 가진 쿼리와 rewrite 되는 쿼리도 단어 통계를 한번만 구해서 같은 점수를 만든다.
+    BooleanQuery bq = new BooleanQuery();
+    bq.add(new TermQuery(new Term("contents", "common")), BooleanClause.Occur.SHOULD);
+    bq.add(new TermQuery(new Term("contents", "rare")), BooleanClause.Occur.SHOULD);
+    bq.add(new TermQuery(new Term("contents", "x1")), BooleanClause.Occur.SHOULD);
+    PrefixQuery prefix = new PrefixQuery(new Term("contents", "x"));
+    prefix.setRewriteMethod(MultiTermQuery.SCORING_BOOLEAN_QUERY_REWRITE);
+    for (Query q : new Query[] { bq, prefix, new PrefixQuery(new Term("contents", "fil")) }) {
+      TopDocs one = singleSearcher.search(q, numDocs);
+      TopDocs merged = view.search(q, numDocs);
+      assertEquals(q.toString(), one.totalHits, merged.totalHits);
+      for (int i = 0; i < one.scoreDocs.length; i++) {
+        assertEquals(q.toString(), one.scoreDocs[i].score, merged.scoreDocs[i].score, 1e-5f);
+      }
+    }
+
+    // 사용 중인 View 는 shard 를 제거해도 계속 사용할 수 있다.
+    assertTrue(sharded.removeShard("shard0"));
+    assertFalse(sharded.removeShard("shard0"));
+    assertEquals(expected.totalHits, view.search(query, numDocs).totalHits);
+    sharded.release(view);
+
+    view = sharded.acquire();
+    assertEquals(2, view.size());
+    assertTrue(view.search(query, numDocs).totalHits < expected.totalHits);
+    sharded.release(view);
+
+    sharded.close();
+    executor.shutdown();
+    singleReader.close();
+    single.close();
+    for (Directory dir : shardDirs) {
+      dir.close();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+public class TestSlicedIndexSearcher extends LuceneTestCase {
+
+  @Test
+  public void testSameResultsAsSerial() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter writer = new RandomIndexWriter(random(), dir, new MockAnalyzer(random()));
+    int numDocs = atLeast(200);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(newTextField("contents", "doc " + (i % 3 == 0 ? "fizz" : "buzz"), Field.Store.NO));
+      writer.addDocument(doc);
+      if (random().nextInt(20) == 0) {
+        writer.commit();
+      }
+    }
+    IndexReader reader = writer.getReader();
+    writer.close();
+
+    // 모든 세그먼트가 정확히 한번씩 slice 에 들어간다.
+    List<List<AtomicReaderContext>> groups = SlicedIndexSearcher.group(reader.leaves());
+    int leaves = 0;
+    for (List<AtomicReaderContext> group : groups) {
+      assertTrue(group.size() <= SlicedIndexSearcher.MAX_SEGMENTS_PER_SLICE);
+      // slice 안의 세그먼트는 docBase 순서여야 점수가 같은 문서의 순서가 직렬 검색과 같다.
+      for (int i = 1; i < group.size(); i++) {
+        assertTrue(group.get(i - 1).docBase < group.get(i).docBase);
+      }
+      leaves += group.size();
+    }
+    assertEquals(reader.leaves().size(), leaves);
+
+    ExecutorService executor = SlicedIndexSearcher.newExecutor(3);
+    try {
+      IndexSearcher serial = new IndexSearcher(reader);
+      IndexSearcher parallel = new SlicedIndexSearcher(reader, executor);
+      TermQuery query = new TermQuery(new Term("contents", "fizz"));
+      TopDocs expected = serial.search(query, 10);
+      TopDocs actual = parallel.search(query, 10);
+      assertEquals(expected.totalHits, actual.totalHits);
+      for (int i = 0; i < expected.scoreDocs.length; i++) {
+        assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+      }
+    } finally {
+      executor.shutdown();
+    }
+    reader.close();
+    dir.close();
+  }
+}
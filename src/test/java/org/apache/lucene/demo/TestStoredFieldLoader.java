@@ -0,0 +1,74 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+public class TestStoredFieldLoader extends LuceneTestCase {
+
+  @Test
+  public void testLoadsOnlySelectedFields() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter writer = new RandomIndexWriter(random(), dir, new MockAnalyzer(random()));
+    int numDocs = atLeast(20);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(newStringField("path", "file" + i, Field.Store.YES));
+      doc.add(newStringField("title", "title" + i, Field.Store.YES));
+      doc.add(newTextField("body", "large body " + i, Field.Store.YES));
+      writer.addDocument(doc);
+    }
+    IndexReader reader = writer.getReader();
+    writer.close();
+    IndexSearcher searcher = newSearcher(reader);
+
+    // docID 순서가 아닌 결과도 hits 순서대로 돌려준다.
+    ScoreDoc[] hits = new ScoreDoc[] { new ScoreDoc(numDocs - 1, 1f), new ScoreDoc(0, 0.5f), new ScoreDoc(3, 0.1f) };
+    StoredFieldLoader loader = StoredFieldLoader.parse("path, title");
+    Document[] docs = loader.load(searcher, hits);
+    assertEquals(3, docs.length);
+    for (int i = 0; i < hits.length; i++) {
+      Document expected = searcher.doc(hits[i].doc);
+      assertEquals(expected.get("path"), docs[i].get("path"));
+      assertEquals(expected.get("title"), docs[i].get("title"));
+      assertNull(docs[i].get("body"));
+      assertEquals(2, docs[i].getFields().size());
+    }
+    reader.close();
+    dir.close();
+  }
+
+  @Test
+  public void testParse() {
+    assertEquals(2, StoredFieldLoader.parse("path,,title ").getFields().size());
+    try {
+      StoredFieldLoader.parse(" , ");
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package org.apache.lucene.demo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.junit.Test;
+
+public class TestWarmingSearcherFactory extends LuceneTestCase {
+
+  @Test
+  public void testRecentQueries() throws Exception {
+    File file = new File(createTempDir("queries"), "queries.txt");
+    Files.write(file.toPath(), Arrays.asList("a", "b", "c", "", "b", "d", "c"), StandardCharsets.UTF_8);
+
+    // 끝에서부터 서로 다른 쿼리를 고르고 로그 순서로 돌려준다.
+    assertEquals(Arrays.asList("b", "d", "c"), WarmingSearcherFactory.recentQueries(file.toPath(), 3));
+    assertEquals(Arrays.asList("a", "b", "d", "c"), WarmingSearcherFactory.recentQueries(file.toPath(), 10));
+  }
+
+  @Test
+  public void testWarmsEachNewSearcher() throws Exception {
+    File file = new File(createTempDir("queries"), "queries.txt");
+    Files.write(file.toPath(), Arrays.asList("apple", "banana AND (", "apple cherry", "cherry"),
+        StandardCharsets.UTF_8);
+    QueryParsingService parser = new QueryParsingService("contents", new MockAnalyzer(random()), 10);
+    WarmingSearcherFactory factory = WarmingSearcherFactory.fromQueryLog(null, file.toPath(), 10, parser);
+    // 파싱할 수 없는 쿼리는 건너뛴다.
+    assertEquals(3, factory.getWarmQueries().size());
+
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    Document doc = new Document();
+    doc.add(new TextField("contents", "apple cherry", Field.Store.YES));
+    writer.addDocument(doc);
+    writer.commit();
+
+    SearchService service = new SearchService(dir, factory, 0);
+    // 처음 공개되는 Searcher 도 준비한다.
+    assertEquals(1, factory.getWarmCount());
+
+    writer.addDocument(doc);
+    writer.commit();
+    assertTrue(service.maybeRefresh());
+    assertEquals(2, factory.getWarmCount());
+    assertTrue(factory.getLastWarmMillis() >= 0);
+
+    service.close();
+    writer.close();
+    dir.close();
+  }
+
+}